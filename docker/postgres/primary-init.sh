@@ -0,0 +1,8 @@
+#!/bin/sh
+# Replication role of the postgres service, used by the streaming replicas (profile "replicas")
+# Runs once, when the data volume is created
+set -e
+
+psql -v ON_ERROR_STOP=1 --username "$POSTGRES_USER" --dbname "$POSTGRES_DB" \
+    -c "CREATE ROLE replicator WITH REPLICATION LOGIN PASSWORD '$REPLICATION_PASSWORD'"
+echo "host replication replicator all scram-sha-256" >> "$PGDATA/pg_hba.conf"
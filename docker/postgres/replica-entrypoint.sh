@@ -0,0 +1,14 @@
+#!/bin/sh
+# Streaming replica of the postgres service: cloned with pg_basebackup on first start, then a hot standby
+set -e
+
+if [ ! -s "$PGDATA/PG_VERSION" ]; then
+    until PGPASSWORD="$REPLICATION_PASSWORD" pg_basebackup -h postgres -U replicator -D "$PGDATA" -R -X stream; do
+        echo "Waiting for the primary to accept replication connections"
+        sleep 2
+    done
+    chmod 700 "$PGDATA"
+fi
+
+# RECOVERY_MIN_APPLY_DELAY holds back replay, so a replica within max-lag-ms still serves slightly stale reads
+exec postgres -c recovery_min_apply_delay="${RECOVERY_MIN_APPLY_DELAY:-0}"
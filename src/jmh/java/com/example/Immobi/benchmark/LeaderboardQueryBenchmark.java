@@ -0,0 +1,187 @@
+package com.example.Immobi.benchmark;
+
+import com.example.Immobi.Repository.GameStatsRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Database leaderboard query latency on 5M and 10M row game_stats tables
+ * Runs the repository's SQL against a copy of the schema in the "bench" schema of the docker-compose database
+ * offsetPage is the OFFSET alternative to keysetPage, reading the same page
+ * Expected result: topPlayers and keysetPage stay flat with the depth, offsetPage grows with it,
+ * rankForScore stays under 1 ms at 10M players
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class LeaderboardQueryBenchmark {
+
+    private static final String SCHEMA = "bench";
+    private static final String[] HISTOGRAM_SCRIPTS = {
+            "/db/migration/V2__score_histogram.sql",
+            "/db/migration/V3__score_histogram_slots.sql"
+    };
+    private static final int PAGE_SIZE = 100;
+    // Scores are wins at a 5% rate, so even a large board holds few distinct scores and many ties
+    private static final int MAX_SCORE = 1000;
+    private static final String OFFSET_PAGE_SQL =
+            "SELECT gs.id AS id, gs.user_id AS userId, u.username AS username, gs.score AS score " +
+            "FROM game_stats gs JOIN users u ON u.id = gs.user_id " +
+            "ORDER BY gs.score DESC, gs.id OFFSET ? LIMIT ?";
+
+    @Param({"5000000", "10000000"})
+    public int players;
+
+    @Param({"1000", "1000000"})
+    public int depth;
+
+    private Connection connection;
+    private PreparedStatement topPlayers;
+    private PreparedStatement keysetPage;
+    private PreparedStatement offsetPage;
+    private PreparedStatement rankForScore;
+    private int cursorScore;
+    private long cursorId;
+
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException, IOException {
+        connection = DriverManager.getConnection(
+                System.getProperty("db.url", "jdbc:postgresql://localhost:5432/guessing_game"),
+                System.getProperty("db.user", "postgres"),
+                System.getProperty("db.password", "postgres"));
+        populate();
+
+        topPlayers = connection.prepareStatement(jdbc(GameStatsRepository.TOP_PLAYERS_SQL));
+        keysetPage = connection.prepareStatement(jdbc(GameStatsRepository.TOP_PLAYERS_AFTER_SQL));
+        offsetPage = connection.prepareStatement(OFFSET_PAGE_SQL);
+        rankForScore = connection.prepareStatement(jdbc(GameStatsRepository.RANK_FOR_SCORE_SQL));
+
+        // Cursor of the row just above the page the keyset and offset benchmarks read
+        try (PreparedStatement cursor = connection.prepareStatement(
+                "SELECT score, id FROM game_stats ORDER BY score DESC, id OFFSET ? LIMIT 1")) {
+            cursor.setInt(1, depth - 1);
+            try (ResultSet resultSet = cursor.executeQuery()) {
+                resultSet.next();
+                cursorScore = resultSet.getInt(1);
+                cursorId = resultSet.getLong(2);
+            }
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws SQLException {
+        connection.close();
+    }
+
+    @Benchmark
+    public int topPlayers() throws SQLException {
+        topPlayers.setInt(1, PAGE_SIZE);
+        return drain(topPlayers);
+    }
+
+    @Benchmark
+    public int keysetPage() throws SQLException {
+        keysetPage.setInt(1, cursorScore);
+        keysetPage.setInt(2, cursorScore);
+        keysetPage.setLong(3, cursorId);
+        keysetPage.setInt(4, PAGE_SIZE);
+        return drain(keysetPage);
+    }
+
+    @Benchmark
+    public int offsetPage() throws SQLException {
+        offsetPage.setInt(1, depth);
+        offsetPage.setInt(2, PAGE_SIZE);
+        return drain(offsetPage);
+    }
+
+    @Benchmark
+    public int rankForScore() throws SQLException {
+        rankForScore.setInt(1, ThreadLocalRandom.current().nextInt(MAX_SCORE));
+        try (ResultSet resultSet = rankForScore.executeQuery()) {
+            resultSet.next();
+            return resultSet.getInt(1);
+        }
+    }
+
+    private static int drain(PreparedStatement statement) throws SQLException {
+        int checksum = 0;
+        try (ResultSet resultSet = statement.executeQuery()) {
+            while (resultSet.next()) {
+                checksum += resultSet.getInt(4);
+            }
+        }
+        return checksum;
+    }
+
+    /**
+     * Replace the named parameters of a repository query with JDBC placeholders
+     */
+    private static String jdbc(String sql) {
+        return sql.replaceAll(":\\w+", "?");
+    }
+
+    /**
+     * Create the tables, index and score histogram once per player count
+     * The histogram scripts run after the rows are inserted, so the backfill counts them in one pass
+     */
+    private void populate() throws SQLException, IOException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("CREATE SCHEMA IF NOT EXISTS " + SCHEMA);
+            statement.execute("SET search_path TO " + SCHEMA);
+            if (isPopulated(statement)) {
+                return;
+            }
+            statement.execute("DROP TABLE IF EXISTS game_stats, users, score_histogram");
+            statement.execute("CREATE TABLE users (id BIGINT PRIMARY KEY, username VARCHAR(255) NOT NULL)");
+            statement.execute("CREATE TABLE game_stats (id BIGINT PRIMARY KEY, user_id BIGINT NOT NULL, score INT NOT NULL)");
+            statement.execute("INSERT INTO users SELECT i, 'player' || i FROM generate_series(1, " + players + ") i");
+            statement.execute("INSERT INTO game_stats SELECT i, i, floor(random() * " + MAX_SCORE + ") " +
+                    "FROM generate_series(1, " + players + ") i");
+            statement.execute("CREATE INDEX idx_game_stats_score_id ON game_stats (score DESC, id, user_id)");
+            for (String histogramScript : HISTOGRAM_SCRIPTS) {
+                try (InputStream script = getClass().getResourceAsStream(histogramScript)) {
+                    statement.execute(new String(script.readAllBytes(), StandardCharsets.UTF_8));
+                }
+            }
+            statement.execute("VACUUM ANALYZE users");
+            statement.execute("VACUUM ANALYZE game_stats");
+            statement.execute("VACUUM ANALYZE score_histogram");
+        }
+    }
+
+    private boolean isPopulated(Statement statement) throws SQLException {
+        try (ResultSet resultSet = statement.executeQuery(
+                "SELECT to_regclass('game_stats') IS NOT NULL AND EXISTS (SELECT 1 FROM information_schema.columns " +
+                "WHERE table_schema = current_schema() AND table_name = 'score_histogram' AND column_name = 'slot')")) {
+            resultSet.next();
+            if (!resultSet.getBoolean(1)) {
+                return false;
+            }
+        }
+        try (ResultSet resultSet = statement.executeQuery("SELECT COUNT(*) FROM game_stats")) {
+            resultSet.next();
+            return resultSet.getLong(1) == players;
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package com.example.Immobi.benchmark;
+
+import com.example.Immobi.Service.LeaderboardRankService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.jedis.JedisConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ZSetOperations;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rank lookup latency for growing leaderboards
+ * Expected result: average time stays flat from 1k to 1M players
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class LeaderboardRankBenchmark {
+
+    private static final String KEY_PREFIX = "bench:leaderboard:";
+    private static final int POPULATE_BATCH_SIZE = 10_000;
+
+    @Param({"1000", "10000", "100000", "1000000"})
+    public int players;
+
+    private JedisConnectionFactory connectionFactory;
+    private StringRedisTemplate redisTemplate;
+    private LeaderboardRankService rankService;
+    private String leaderboardKey;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        RedisStandaloneConfiguration config = new RedisStandaloneConfiguration(
+                System.getProperty("redis.host", "localhost"),
+                Integer.getInteger("redis.port", 6379));
+        connectionFactory = new JedisConnectionFactory(config);
+        connectionFactory.afterPropertiesSet();
+        connectionFactory.start();
+
+        redisTemplate = new StringRedisTemplate(connectionFactory);
+        rankService = new LeaderboardRankService(redisTemplate);
+        leaderboardKey = KEY_PREFIX + players;
+        populate();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        redisTemplate.delete(leaderboardKey);
+        connectionFactory.destroy();
+    }
+
+    @Benchmark
+    public Integer rankOfRandomPlayer() {
+        long userId = ThreadLocalRandom.current().nextLong(players);
+        return rankService.getRank(leaderboardKey, userId);
+    }
+
+    /**
+     * Fill the leaderboard with scores drawn from a narrow range so ties are common, as in production
+     */
+    private void populate() {
+        redisTemplate.delete(leaderboardKey);
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int maxScore = Math.max(players / 100, 10);
+        Set<ZSetOperations.TypedTuple<String>> batch = new HashSet<>();
+        for (int userId = 0; userId < players; userId++) {
+            batch.add(ZSetOperations.TypedTuple.of(String.valueOf(userId), (double) random.nextInt(maxScore)));
+            if (batch.size() == POPULATE_BATCH_SIZE || userId == players - 1) {
+                redisTemplate.opsForZSet().add(leaderboardKey, batch);
+                batch.clear();
+            }
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package com.example.Immobi.benchmark;
+
+import com.example.Immobi.Service.GameService;
+import com.example.Immobi.Service.outcome.BlockOutcomeGenerator;
+import com.example.Immobi.Service.outcome.OutcomeGenerator;
+import com.example.Immobi.Service.outcome.SeededOutcomeGenerator;
+import com.example.Immobi.Service.outcome.SplittableOutcomeGenerator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Guess outcome throughput of the generators under 64 request threads
+ * shared-random is the previous implementation: one java.util.Random and a candidate array per loss
+ * Expected result: splittable and block scale with the thread count, shared-random and seeded do not
+ * Run with -prof gc to compare allocation per guess
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Threads(64)
+public class OutcomeGeneratorBenchmark {
+
+    @Param({"shared-random", "splittable", "block", "seeded"})
+    public String generator;
+
+    private OutcomeGenerator outcomeGenerator;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        switch (generator) {
+            case "shared-random":
+                outcomeGenerator = new SharedRandomOutcomeGenerator();
+                break;
+            case "splittable":
+                outcomeGenerator = new SplittableOutcomeGenerator(
+                        GameService.WIN_THRESHOLD, GameService.MIN_NUMBER, GameService.MAX_NUMBER);
+                break;
+            case "block":
+                outcomeGenerator = new BlockOutcomeGenerator(
+                        GameService.WIN_THRESHOLD, GameService.MIN_NUMBER, GameService.MAX_NUMBER, 1024);
+                break;
+            default:
+                outcomeGenerator = new SeededOutcomeGenerator(
+                        GameService.WIN_THRESHOLD, GameService.MIN_NUMBER, GameService.MAX_NUMBER, 42L);
+        }
+    }
+
+    @Benchmark
+    public int guess() {
+        int guessedNumber = 3;
+        return outcomeGenerator.isWin() ? guessedNumber : outcomeGenerator.differentNumber(guessedNumber);
+    }
+
+    /**
+     * Outcome logic as it was inlined in GameService before the generators existed
+     */
+    private static final class SharedRandomOutcomeGenerator implements OutcomeGenerator {
+        private final Random random = new Random();
+
+        @Override
+        public boolean isWin() {
+            return random.nextInt(100) < GameService.WIN_THRESHOLD;
+        }
+
+        @Override
+        public int differentNumber(int guessedNumber) {
+            int[] possibleNumbers = new int[GameService.MAX_NUMBER - GameService.MIN_NUMBER];
+            int index = 0;
+            for (int i = GameService.MIN_NUMBER; i <= GameService.MAX_NUMBER; i++) {
+                if (i != guessedNumber) {
+                    possibleNumbers[index++] = i;
+                }
+            }
+            return possibleNumbers[random.nextInt(possibleNumbers.length)];
+        }
+    }
+}
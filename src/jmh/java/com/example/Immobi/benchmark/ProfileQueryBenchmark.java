@@ -0,0 +1,139 @@
+package com.example.Immobi.benchmark;
+
+import com.example.Immobi.Dto.player.PlayerProfileDto;
+import com.example.Immobi.Entity.GameStats;
+import com.example.Immobi.Repository.GameStatsRepository;
+import com.example.Immobi.Repository.projection.PlayerProfileRow;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.data.jpa.repository.support.JpaRepositoryFactory;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.orm.jpa.JpaTransactionManager;
+import org.springframework.orm.jpa.LocalContainerEntityManagerFactoryBean;
+import org.springframework.orm.jpa.SharedEntityManagerCreator;
+import org.springframework.orm.jpa.vendor.HibernateJpaVendorAdapter;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Profile read on a cache miss: the former entity query against the projection query
+ * Both run in a read-only transaction through Hibernate and build the same PlayerProfileDto.
+ * The tables are created from the V1 and V4 migrations in the "bench_profile" schema of the docker-compose database.
+ * Run with -prof gc and compare gc.alloc.rate.norm (bytes per call)
+ * Expected result: the projection allocates less per call and is faster, having no entity, proxy or
+ * persistence-context snapshot to create
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ProfileQueryBenchmark {
+
+    private static final String SCHEMA = "bench_profile";
+    private static final String[] SCHEMA_SCRIPTS = {
+            "/db/migration/V1__create_schema.sql",
+            "/db/migration/V4__game_stats_version.sql"
+    };
+    private static final long USER_ID = 1L;
+    private static final String ENTITY_QUERY =
+            "SELECT gs FROM GameStats gs JOIN FETCH gs.player WHERE gs.player.id = :playerId";
+
+    private LocalContainerEntityManagerFactoryBean entityManagerFactoryBean;
+    private EntityManager entityManager;
+    private GameStatsRepository gameStatsRepository;
+    private TransactionTemplate readOnlyTransaction;
+
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException, IOException {
+        String url = System.getProperty("db.url", "jdbc:postgresql://localhost:5432/guessing_game");
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                url + (url.contains("?") ? "&" : "?") + "currentSchema=" + SCHEMA,
+                System.getProperty("db.user", "postgres"),
+                System.getProperty("db.password", "postgres"));
+        populate(dataSource);
+
+        entityManagerFactoryBean = new LocalContainerEntityManagerFactoryBean();
+        entityManagerFactoryBean.setDataSource(dataSource);
+        entityManagerFactoryBean.setPackagesToScan("com.example.Immobi.Entity");
+        entityManagerFactoryBean.setJpaVendorAdapter(new HibernateJpaVendorAdapter());
+        entityManagerFactoryBean.setJpaPropertyMap(Map.of("hibernate.hbm2ddl.auto", "none"));
+        entityManagerFactoryBean.afterPropertiesSet();
+        EntityManagerFactory entityManagerFactory = entityManagerFactoryBean.getObject();
+
+        entityManager = SharedEntityManagerCreator.createSharedEntityManager(entityManagerFactory);
+        gameStatsRepository = new JpaRepositoryFactory(entityManager).getRepository(GameStatsRepository.class);
+        readOnlyTransaction = new TransactionTemplate(new JpaTransactionManager(entityManagerFactory));
+        readOnlyTransaction.setReadOnly(true);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        entityManagerFactoryBean.destroy();
+    }
+
+    @Benchmark
+    public PlayerProfileDto entity() {
+        return readOnlyTransaction.execute(status -> {
+            GameStats stats = entityManager.createQuery(ENTITY_QUERY, GameStats.class)
+                    .setParameter("playerId", USER_ID)
+                    .getSingleResult();
+            return PlayerProfileDto.builder()
+                    .id(USER_ID)
+                    .email(stats.getPlayer().getEmail())
+                    .username(stats.getPlayer().getUsername())
+                    .score(stats.getScore())
+                    .remainingTurns(stats.getRemainingTurns())
+                    .build();
+        });
+    }
+
+    @Benchmark
+    public PlayerProfileDto projection() {
+        // The repository runs without its transaction interceptor here, so the transaction is opened explicitly
+        return readOnlyTransaction.execute(status -> {
+            PlayerProfileRow profile = gameStatsRepository.findProfileByPlayerId(USER_ID).orElseThrow();
+            return PlayerProfileDto.builder()
+                    .id(USER_ID)
+                    .email(profile.getEmail())
+                    .username(profile.getUsername())
+                    .score(profile.getScore())
+                    .remainingTurns(profile.getRemainingTurns())
+                    .build();
+        });
+    }
+
+    /**
+     * Create the schema from the migrations and one player with stats
+     */
+    private void populate(DriverManagerDataSource dataSource) throws SQLException, IOException {
+        try (Connection connection = dataSource.getConnection(); Statement statement = connection.createStatement()) {
+            statement.execute("CREATE SCHEMA IF NOT EXISTS " + SCHEMA);
+            statement.execute("SET search_path TO " + SCHEMA);
+            for (String path : SCHEMA_SCRIPTS) {
+                try (InputStream script = getClass().getResourceAsStream(path)) {
+                    statement.execute(new String(script.readAllBytes(), StandardCharsets.UTF_8));
+                }
+            }
+            statement.execute("INSERT INTO users (id, username, password, email) " +
+                    "VALUES (" + USER_ID + ", 'bench', 'bench', 'bench@example.com') ON CONFLICT DO NOTHING");
+            statement.execute("INSERT INTO game_stats (user_id, score, remaining_turns) " +
+                    "VALUES (" + USER_ID + ", 42, 5) ON CONFLICT (user_id) DO NOTHING");
+        }
+    }
+}
@@ -1,6 +1,8 @@
 package com.example.Immobi.Controller;
 
 import com.example.Immobi.Core.dto.BaseResponse;
+import com.example.Immobi.Dto.game.BatchGuessRequest;
+import com.example.Immobi.Dto.game.BatchGuessResponse;
 import com.example.Immobi.Dto.game.BuyTurnsResponse;
 import com.example.Immobi.Dto.game.GuessRequest;
 import com.example.Immobi.Dto.game.GuessResponse;
@@ -47,6 +49,7 @@ public class GameController {
         @ApiResponse(responseCode = "200", description = "Guess processed successfully", 
             content = @Content(mediaType = "application/json", schema = @Schema(implementation = BaseResponse.class))),
         @ApiResponse(responseCode = "400", description = "Invalid input or no turns left"),
+        @ApiResponse(responseCode = "429", description = "Too many pending guesses for this player"),
         @ApiResponse(responseCode = "401", description = "Not authenticated")
     })
     public ResponseEntity<BaseResponse<GuessResponse>> makeGuess(
@@ -60,6 +63,32 @@ public class GameController {
         return ResponseEntity.ok(BaseResponse.success(result, responseMessage));
     }
     
+    /**
+     * Play several guesses in one call
+     */
+    @PostMapping("/guess/batch")
+    @Operation(
+        summary = "Make several guesses",
+        description = "Play up to " + BatchGuessRequest.MAX_BATCH_SIZE + " guesses at once; " +
+                      "guesses beyond the remaining turns are not played"
+    )
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Guesses processed successfully", 
+            content = @Content(mediaType = "application/json", schema = @Schema(implementation = BaseResponse.class))),
+        @ApiResponse(responseCode = "400", description = "Invalid input or no turns left"),
+        @ApiResponse(responseCode = "429", description = "Too many pending guesses for this player"),
+        @ApiResponse(responseCode = "401", description = "Not authenticated")
+    })
+    public ResponseEntity<BaseResponse<BatchGuessResponse>> makeGuesses(
+            @AuthenticationPrincipal User player,
+            @Valid @RequestBody BatchGuessRequest batchGuessRequest) {
+        
+        BatchGuessResponse result = gameService.processGuessBatch(player, batchGuessRequest);
+        
+        return ResponseEntity.ok(BaseResponse.success(result,
+                String.format("Played %d guesses, %d correct.", result.getPlayed(), result.getWins())));
+    }
+    
     /**
      * Create appropriate response message based on guess result
      */
@@ -78,7 +107,8 @@ public class GameController {
         @ApiResponse(responseCode = "200", description = "Turns purchased successfully", 
             content = @Content(mediaType = "application/json", schema = @Schema(implementation = BaseResponse.class))),
         @ApiResponse(responseCode = "401", description = "Not authenticated"),
-        @ApiResponse(responseCode = "402", description = "Payment required/failed")
+        @ApiResponse(responseCode = "402", description = "Payment required/failed"),
+        @ApiResponse(responseCode = "429", description = "Too many concurrent requests for this player")
     })
     public ResponseEntity<BaseResponse<BuyTurnsResponse>> buyTurns(@AuthenticationPrincipal User player) {
         GameStats updatedStats = gameService.buyAdditionalTurns(player);
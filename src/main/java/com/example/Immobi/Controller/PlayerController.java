@@ -2,25 +2,35 @@ package com.example.Immobi.Controller;
 
 import com.example.Immobi.Core.dto.BaseResponse;
 import com.example.Immobi.Dto.player.LeaderboardEntryDto;
+import com.example.Immobi.Dto.player.LeaderboardPageDto;
 import com.example.Immobi.Dto.player.PlayerProfileDto;
 import com.example.Immobi.Entity.User;
+import com.example.Immobi.Service.LeaderboardResponseCacheService.RenderedLeaderboard;
 import com.example.Immobi.Service.PlayerService;
 import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 import java.util.List;
+import java.util.Locale;
 
 /**
  * Author: QuanNH
@@ -33,7 +43,9 @@ public class PlayerController {
 
     private static final Logger log = LoggerFactory.getLogger(PlayerController.class);
     private static final int DEFAULT_LEADERBOARD_SIZE = 10;
+    private static final int MAX_LEADERBOARD_SIZE = 100;
     private static final String CACHE_REFRESH_SUCCESS = "Cache refreshed successfully";
+    private static final String GZIP_ENCODING = "gzip";
 
     private final PlayerService playerService;
 
@@ -43,24 +55,105 @@ public class PlayerController {
 
     /**
      * Get player leaderboard
+     * Serves a pre-serialized body and answers 304 when the client already has the current version
+     * The size is capped at the smaller of {@value #MAX_LEADERBOARD_SIZE} and the near-cache capacity
      */
     @GetMapping("/leaderboard")
     @Operation(summary = "Get leaderboard", description = "Get top players sorted by score")
     @ApiResponses(value = {
-        @ApiResponse(responseCode = "200", description = "Leaderboard retrieved successfully")
+        @ApiResponse(responseCode = "200", description = "Leaderboard retrieved successfully",
+            content = @Content(mediaType = "application/json", schema = @Schema(implementation = BaseResponse.class))),
+        @ApiResponse(responseCode = "304", description = "Leaderboard not modified since the given ETag")
     })
-    public ResponseEntity<BaseResponse<List<LeaderboardEntryDto>>> getLeaderboard(
-            @RequestParam(required = false, defaultValue = "10") int limit) {
+    public ResponseEntity<byte[]> getLeaderboard(
+            @RequestParam(required = false, defaultValue = "10") int limit,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
         
-        log.info("Leaderboard request received for top {} players", limit);
+        log.debug("Leaderboard request received for top {} players", limit);
         
         // Enforce reasonable limits
+        int maxSize = Math.min(MAX_LEADERBOARD_SIZE, playerService.getMaxRenderedLeaderboardSize());
+        int leaderboardSize = limit > 0 ? Math.min(limit, maxSize) : Math.min(DEFAULT_LEADERBOARD_SIZE, maxSize);
+        
+        RenderedLeaderboard leaderboard = playerService.getRenderedLeaderboard(leaderboardSize);
+        String etag = leaderboard.getEtag();
+        if (etag != null && matchesAny(ifNoneMatch, etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                    .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING)
+                    .eTag(etag)
+                    .build();
+        }
+        
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (etag != null) {
+            response.eTag(etag);
+        }
+        if (acceptsGzip(acceptEncoding)) {
+            return response.header(HttpHeaders.CONTENT_ENCODING, GZIP_ENCODING).body(leaderboard.getGzip());
+        }
+        return response.body(leaderboard.getJson());
+    }
+
+    /**
+     * Get one page of the leaderboard
+     */
+    @GetMapping("/leaderboard/page")
+    @Operation(summary = "Get leaderboard page", description = "Page through the leaderboard with a cursor (max 100 per page)")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Leaderboard page retrieved successfully"),
+        @ApiResponse(responseCode = "400", description = "Invalid cursor")
+    })
+    public ResponseEntity<BaseResponse<LeaderboardPageDto>> getLeaderboardPage(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false, defaultValue = "10") int size) {
         
-        List<LeaderboardEntryDto> leaderboard = playerService.getLeaderboard(DEFAULT_LEADERBOARD_SIZE);
+        LeaderboardPageDto page = playerService.getLeaderboardPage(cursor, size);
+        return ResponseEntity.ok(BaseResponse.success(
+                page,
+                String.format("%d players retrieved successfully", page.getEntries().size())));
+    }
+    
+    /**
+     * Get a time-windowed leaderboard
+     */
+    @GetMapping("/leaderboard/periods/{period}")
+    @Operation(summary = "Get period leaderboard",
+            description = "Get top players of the daily, weekly, season, last-7-days or last-4-weeks leaderboard")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Leaderboard retrieved successfully"),
+        @ApiResponse(responseCode = "400", description = "Unknown period")
+    })
+    public ResponseEntity<BaseResponse<List<LeaderboardEntryDto>>> getPeriodLeaderboard(
+            @PathVariable String period,
+            @RequestParam(required = false, defaultValue = "10") int limit) {
+        
+        List<LeaderboardEntryDto> leaderboard = playerService.getPeriodLeaderboard(period, limit);
         return ResponseEntity.ok(BaseResponse.success(
                 leaderboard,
                 String.format("Top %d players retrieved successfully", leaderboard.size())));
     }
+    
+    /**
+     * Get the players ranked around the current player
+     */
+    @GetMapping("/leaderboard/around-me")
+    @Operation(summary = "Get players around me", description = "Get the players ranked just above and below the current player (max 25 each side)")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Leaderboard window retrieved successfully"),
+        @ApiResponse(responseCode = "401", description = "Not authenticated")
+    })
+    public ResponseEntity<BaseResponse<List<LeaderboardEntryDto>>> getPlayersAroundMe(
+            @AuthenticationPrincipal User user,
+            @RequestParam(required = false, defaultValue = "5") int radius) {
+        
+        List<LeaderboardEntryDto> window = playerService.getPlayersAroundMe(user, radius);
+        return ResponseEntity.ok(BaseResponse.success(
+                window,
+                String.format("%d players retrieved successfully", window.size())));
+    }
 
     /**
      * Get current player profile
@@ -91,7 +184,9 @@ public class PlayerController {
     @Operation(summary = "Reset leaderboard", description = "Force rebuild leaderboard from database (admin only)")
     @ApiResponses(value = {
         @ApiResponse(responseCode = "200", description = "Leaderboard reset successfully"),
-        @ApiResponse(responseCode = "403", description = "Access denied")
+        @ApiResponse(responseCode = "403", description = "Access denied"),
+        @ApiResponse(responseCode = "409", description = "Leaderboard is being rebuilt by another node"),
+        @ApiResponse(responseCode = "503", description = "Leaderboard could not be rebuilt")
     })
     public ResponseEntity<BaseResponse<Void>> resetLeaderboard() {
         log.info("Manual leaderboard reset requested");
@@ -115,4 +210,64 @@ public class PlayerController {
         playerService.refreshPlayerProfile(user.getId());
         return ResponseEntity.ok(BaseResponse.success(null, CACHE_REFRESH_SUCCESS));
     }
-} 
\ No newline at end of file
+
+    /**
+     * Whether an If-None-Match header lists the entity tag or is "*"
+     * Tags are compared exactly, ignoring only the weak prefix as If-None-Match uses weak comparison
+     */
+    static boolean matchesAny(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            if (tag.equals("*")) {
+                return true;
+            }
+            if (tag.startsWith("W/")) {
+                tag = tag.substring(2);
+            }
+            if (tag.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Whether an Accept-Encoding header allows gzip
+     * An explicit gzip entry decides on its own; otherwise "*" does. A q-value of 0 refuses the coding.
+     */
+    static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        Boolean wildcard = null;
+        for (String entry : acceptEncoding.split(",")) {
+            String[] parts = entry.split(";");
+            String coding = parts[0].trim().toLowerCase(Locale.ROOT);
+            boolean accepted = qValue(parts) > 0;
+            if (coding.equals(GZIP_ENCODING) || coding.equals("x-gzip")) {
+                return accepted;
+            }
+            if (coding.equals("*")) {
+                wildcard = accepted;
+            }
+        }
+        return Boolean.TRUE.equals(wildcard);
+    }
+
+    private static double qValue(String[] parameters) {
+        for (int i = 1; i < parameters.length; i++) {
+            String parameter = parameters[i].trim();
+            if (parameter.startsWith("q=") || parameter.startsWith("Q=")) {
+                try {
+                    return Double.parseDouble(parameter.substring(2).trim());
+                } catch (NumberFormatException e) {
+                    return 0;
+                }
+            }
+        }
+        return 1;
+    }
+}
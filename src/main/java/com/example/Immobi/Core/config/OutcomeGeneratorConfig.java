@@ -0,0 +1,36 @@
+package com.example.Immobi.Core.config;
+
+import com.example.Immobi.Service.GameService;
+import com.example.Immobi.Service.outcome.BlockOutcomeGenerator;
+import com.example.Immobi.Service.outcome.OutcomeGenerator;
+import com.example.Immobi.Service.outcome.SeededOutcomeGenerator;
+import com.example.Immobi.Service.outcome.SplittableOutcomeGenerator;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Selects the generator deciding guess outcomes
+ * splittable: per-thread SplittableRandom (default)
+ * block: per-thread blocks of pre-generated draws
+ * seeded: one seeded stream, reproducible outcomes for load tests
+ */
+@Configuration
+public class OutcomeGeneratorConfig {
+
+    @Bean
+    public OutcomeGenerator outcomeGenerator(@Value("${game.outcome.generator:splittable}") String generator,
+                                             @Value("${game.outcome.block-size:1024}") int blockSize,
+                                             @Value("${game.outcome.seed:42}") long seed) {
+        switch (generator) {
+            case "splittable":
+                return new SplittableOutcomeGenerator(GameService.WIN_THRESHOLD, GameService.MIN_NUMBER, GameService.MAX_NUMBER);
+            case "block":
+                return new BlockOutcomeGenerator(GameService.WIN_THRESHOLD, GameService.MIN_NUMBER, GameService.MAX_NUMBER, blockSize);
+            case "seeded":
+                return new SeededOutcomeGenerator(GameService.WIN_THRESHOLD, GameService.MIN_NUMBER, GameService.MAX_NUMBER, seed);
+            default:
+                throw new IllegalArgumentException("Unknown game.outcome.generator: " + generator);
+        }
+    }
+}
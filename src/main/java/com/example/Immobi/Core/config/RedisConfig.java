@@ -5,12 +5,15 @@ import org.springframework.cache.CacheManager;
 import org.springframework.cache.annotation.EnableCaching;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.cache.CacheKeyPrefix;
 import org.springframework.data.redis.cache.RedisCacheConfiguration;
 import org.springframework.data.redis.cache.RedisCacheManager;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
 import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
 import org.springframework.data.redis.connection.jedis.JedisConnectionFactory;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
 import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
 import org.springframework.data.redis.serializer.RedisSerializationContext;
 import org.springframework.data.redis.serializer.StringRedisSerializer;
@@ -32,6 +35,16 @@ public class RedisConfig {
     // Cache names
     public static final String CACHE_LEADERBOARD = "leaderboard";
     public static final String CACHE_PLAYER_PROFILE = "playerProfile";
+    
+    // Serializer of every cache's values, also used where cache entries are written outside the cache abstraction
+    public static final GenericJackson2JsonRedisSerializer CACHE_VALUE_SERIALIZER = new GenericJackson2JsonRedisSerializer();
+    
+    /**
+     * Redis key of a player's cached profile, for writes issued outside the cache abstraction
+     */
+    public static String playerProfileKey(Long userId) {
+        return CacheKeyPrefix.simple().compute(CACHE_PLAYER_PROFILE) + userId;
+    }
 
     @Value("${spring.redis.host:localhost}")
     private String redisHost;
@@ -64,15 +77,32 @@ public class RedisConfig {
         template.afterPropertiesSet();
         return template;
     }
+
+    /**
+     * Plain string template for compact structures such as the leaderboard,
+     * where JSON-encoding every member would only add bytes
+     */
+    @Bean
+    public StringRedisTemplate stringRedisTemplate() {
+        return new StringRedisTemplate(jedisConnectionFactory());
+    }
+    
+    /**
+     * Listener container for pub/sub channels such as leaderboard change notifications
+     */
+    @Bean
+    public RedisMessageListenerContainer redisMessageListenerContainer() {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(jedisConnectionFactory());
+        return container;
+    }
     
     @Bean
     public CacheManager cacheManager(RedisConnectionFactory connectionFactory) {
         // Default cache configuration
         RedisCacheConfiguration defaultCacheConfig = RedisCacheConfiguration.defaultCacheConfig()
                 .serializeValuesWith(
-                    RedisSerializationContext.SerializationPair.fromSerializer(
-                        new GenericJackson2JsonRedisSerializer()
-                    )
+                    RedisSerializationContext.SerializationPair.fromSerializer(CACHE_VALUE_SERIALIZER)
                 );
                 
         // Configure TTL for different caches with shorter durations
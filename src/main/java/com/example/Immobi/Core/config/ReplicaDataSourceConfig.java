@@ -0,0 +1,87 @@
+package com.example.Immobi.Core.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.flyway.FlywayDataSource;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Read replica routing, enabled by setting game.datasource.replica.urls
+ * spring.datasource stays the primary: it takes every write, the migrations and any read-only transaction
+ * no replica can serve within the allowed lag. @Transactional(readOnly = true) work goes to the replicas.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "game.datasource.replica", name = "urls")
+public class ReplicaDataSourceConfig {
+
+    // Lag of a streaming replica: 0 while it is streaming and has replayed all it received, otherwise the age
+    // of the last replayed transaction. NULL, so never used, on a server that is not in recovery or has
+    // replayed nothing yet
+    public static final String DEFAULT_LAG_QUERY =
+            "SELECT CASE WHEN NOT pg_is_in_recovery() THEN NULL " +
+            "WHEN pg_last_wal_receive_lsn() = pg_last_wal_replay_lsn() " +
+            "AND EXISTS (SELECT 1 FROM pg_stat_wal_receiver WHERE status = 'streaming') THEN 0 " +
+            "ELSE CAST(EXTRACT(EPOCH FROM now() - pg_last_xact_replay_timestamp()) * 1000 AS bigint) END";
+
+    @Bean
+    @FlywayDataSource
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        HikariDataSource dataSource = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        dataSource.setPoolName("primary");
+        return dataSource;
+    }
+
+    @Bean
+    public ReplicaSet replicaSet(DataSourceProperties properties,
+                                 MeterRegistry meterRegistry,
+                                 @Value("${game.datasource.replica.urls}") List<String> urls,
+                                 @Value("${game.datasource.replica.username:${spring.datasource.username}}") String username,
+                                 @Value("${game.datasource.replica.password:${spring.datasource.password}}") String password,
+                                 @Value("${game.datasource.replica.pool-size:10}") int poolSize,
+                                 @Value("${game.datasource.replica.max-lag-ms:1000}") long maxLagMillis,
+                                 @Value("${game.datasource.replica.lag-query:" + DEFAULT_LAG_QUERY + "}") String lagQuery) {
+        Map<String, HikariDataSource> replicas = new LinkedHashMap<>();
+        for (int i = 0; i < urls.size(); i++) {
+            HikariDataSource replica = new HikariDataSource();
+            replica.setPoolName("replica-" + (i + 1));
+            replica.setDriverClassName(properties.determineDriverClassName());
+            replica.setJdbcUrl(urls.get(i).trim());
+            replica.setUsername(username);
+            replica.setPassword(password);
+            replica.setMaximumPoolSize(poolSize);
+            replica.setReadOnly(true);
+            // A replica that is down at startup is skipped by the lag guard instead of failing the application
+            replica.setInitializationFailTimeout(-1);
+            replica.setConnectionTimeout(1000);
+            replicas.put(replica.getPoolName(), replica);
+        }
+        return new ReplicaSet(replicas, lagQuery, maxLagMillis, meterRegistry);
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(HikariDataSource primaryDataSource, ReplicaSet replicaSet, MeterRegistry meterRegistry) {
+        Map<Object, Object> targets = new HashMap<>(replicaSet.getReplicas());
+        targets.put(ReplicaRoutingDataSource.PRIMARY, primaryDataSource);
+
+        ReplicaRoutingDataSource routingDataSource = new ReplicaRoutingDataSource(replicaSet, meterRegistry);
+        routingDataSource.setTargetDataSources(targets);
+        routingDataSource.setDefaultTargetDataSource(primaryDataSource);
+        routingDataSource.afterPropertiesSet();
+        return new LazyConnectionDataSourceProxy(routingDataSource);
+    }
+}
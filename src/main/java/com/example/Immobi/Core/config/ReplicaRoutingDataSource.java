@@ -0,0 +1,49 @@
+package com.example.Immobi.Core.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Sends connections of read-only transactions to the replicas in turn and everything else to the primary
+ * Replicas the lag guard rejects are skipped; when none is usable the read goes to the primary.
+ * Must sit behind a LazyConnectionDataSourceProxy: the transaction manager asks for a connection before
+ * the read-only flag of the transaction is published.
+ */
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource {
+
+    public static final String PRIMARY = "primary";
+
+    private final ReplicaSet replicaSet;
+    private final List<String> replicaNames;
+    private final AtomicInteger next = new AtomicInteger();
+    private final Counter primaryFallbacks;
+
+    public ReplicaRoutingDataSource(ReplicaSet replicaSet, MeterRegistry meterRegistry) {
+        this.replicaSet = replicaSet;
+        this.replicaNames = replicaSet.getNames();
+        this.primaryFallbacks = Counter.builder("game.datasource.replica.fallbacks")
+                .description("Read-only transactions sent to the primary because no replica was usable")
+                .register(meterRegistry);
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly() || replicaNames.isEmpty()) {
+            return PRIMARY;
+        }
+        int start = Math.floorMod(next.getAndIncrement(), replicaNames.size());
+        for (int i = 0; i < replicaNames.size(); i++) {
+            String name = replicaNames.get((start + i) % replicaNames.size());
+            if (replicaSet.isUsable(name)) {
+                return name;
+            }
+        }
+        primaryFallbacks.increment();
+        return PRIMARY;
+    }
+}
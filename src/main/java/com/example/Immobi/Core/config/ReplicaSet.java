@@ -0,0 +1,98 @@
+package com.example.Immobi.Core.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Connection pools of the read replicas and their last measured replication lag
+ * A replica is usable while its last lag check succeeded within the allowed lag; a replica that cannot be
+ * reached, reports no lag (it is not replicating) or falls behind is skipped until a later check finds it
+ * caught up again.
+ */
+public class ReplicaSet {
+
+    private static final Logger log = LoggerFactory.getLogger(ReplicaSet.class);
+
+    private final Map<String, HikariDataSource> replicas;
+    private final Map<String, JdbcTemplate> lagChecks = new LinkedHashMap<>();
+    private final Map<String, Long> lagMillis = new ConcurrentHashMap<>();
+    private final String lagQuery;
+    private final long maxLagMillis;
+
+    /**
+     * @param replicas Replica pools by name
+     * @param lagQuery Query returning the replica's lag in milliseconds, NULL when it is not a usable replica
+     * @param maxLagMillis Largest lag at which a replica is still used
+     */
+    public ReplicaSet(Map<String, HikariDataSource> replicas, String lagQuery, long maxLagMillis, MeterRegistry meterRegistry) {
+        this.replicas = replicas;
+        this.lagQuery = lagQuery;
+        this.maxLagMillis = maxLagMillis;
+        replicas.forEach((name, dataSource) -> {
+            JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+            jdbcTemplate.setQueryTimeout(1);
+            lagChecks.put(name, jdbcTemplate);
+            Gauge.builder("game.datasource.replica.lag", lagMillis, lags -> lags.getOrDefault(name, -1L))
+                    .description("Last measured replication lag in milliseconds, -1 if the replica is unreachable or not replicating")
+                    .tag("replica", name)
+                    .register(meterRegistry);
+        });
+    }
+
+    public Map<String, HikariDataSource> getReplicas() {
+        return replicas;
+    }
+
+    public List<String> getNames() {
+        return new ArrayList<>(replicas.keySet());
+    }
+
+    /**
+     * Whether reads may be sent to the replica
+     */
+    public boolean isUsable(String name) {
+        Long lag = lagMillis.get(name);
+        return lag != null && lag <= maxLagMillis;
+    }
+
+    /**
+     * Measure the lag of every replica
+     */
+    @Scheduled(fixedDelayString = "${game.datasource.replica.lag-check-interval-ms:1000}")
+    public void checkLag() {
+        lagChecks.forEach((name, jdbcTemplate) -> {
+            try {
+                Long lag = jdbcTemplate.queryForObject(lagQuery, Long.class);
+                if (lag == null) {
+                    lagMillis.remove(name);
+                    log.warn("Replica {} reports no replication lag, it is not a streaming replica", name);
+                    return;
+                }
+                lagMillis.put(name, lag);
+                if (lag > maxLagMillis) {
+                    log.warn("Replica {} lags {} ms behind, reading from the primary", name, lag);
+                }
+            } catch (Exception e) {
+                lagMillis.remove(name);
+                log.warn("Lag check of replica {} failed: {}", name, e.getMessage());
+            }
+        });
+    }
+
+    @PreDestroy
+    public void close() {
+        replicas.values().forEach(HikariDataSource::close);
+    }
+}
@@ -30,4 +30,17 @@ public class BusinessException extends RuntimeException {
         super(customMessage, cause);
         this.errorCode = errorCode;
     }
+    
+    private BusinessException(ErrorCode errorCode, String customMessage, boolean writableStackTrace) {
+        super(customMessage, null, false, writableStackTrace);
+        this.errorCode = errorCode;
+    }
+    
+    /**
+     * Create an exception without stack trace, for rejections frequent enough that filling one in costs
+     * more than the check itself. The instance is immutable and can be created once and rethrown.
+     */
+    public static BusinessException withoutStackTrace(ErrorCode errorCode, String customMessage) {
+        return new BusinessException(errorCode, customMessage, false);
+    }
 } 
\ No newline at end of file
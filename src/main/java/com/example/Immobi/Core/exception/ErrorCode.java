@@ -27,6 +27,7 @@ public enum ErrorCode {
     GAME_STATE_ERROR(1202, "Invalid game state"),
     CONCURRENT_REQUEST_ERROR(1203, "Too many concurrent requests"),
     PLAYER_STATS_NOT_FOUND(1204, "Player statistics not found"),
+    LEADERBOARD_REBUILD_IN_PROGRESS(1205, "Leaderboard rebuild already in progress"),
     
     // Server errors (2000-2099)
     INTERNAL_SERVER_ERROR(2000, "Internal server error"),
@@ -70,7 +70,20 @@ public class GlobalExceptionHandler {
                 e.getMessage(),
                 LocalDateTime.now()
         );
-        return new ResponseEntity<>(error, HttpStatus.BAD_REQUEST);
+        return new ResponseEntity<>(error, statusOf(e.getErrorCode()));
+    }
+
+    private static HttpStatus statusOf(ErrorCode errorCode) {
+        switch (errorCode) {
+            case CONCURRENT_REQUEST_ERROR:
+                return HttpStatus.TOO_MANY_REQUESTS;
+            case LEADERBOARD_REBUILD_IN_PROGRESS:
+                return HttpStatus.CONFLICT;
+            case SERVICE_UNAVAILABLE:
+                return HttpStatus.SERVICE_UNAVAILABLE;
+            default:
+                return HttpStatus.BAD_REQUEST;
+        }
     }
 
     @ExceptionHandler(RuntimeException.class)
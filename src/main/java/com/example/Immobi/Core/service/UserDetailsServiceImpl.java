@@ -5,6 +5,7 @@ import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 /**
  * Author: QuanNH
@@ -26,11 +27,14 @@ public class UserDetailsServiceImpl implements UserDetailsService {
 
     /**
      * Loads a user by username for authentication
+     * Not read-only, so it stays on the primary: a replica behind by even a moment would reject the token of a
+     * user who just signed up. The repository's own read-only default joins this transaction.
      * @param username The username to look up
      * @return UserDetails object containing user information
      * @throws UsernameNotFoundException if the user is not found
      */
     @Override
+    @Transactional
     public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
         return userRepository.findByUsername(username)
                 .orElseThrow(() -> new UsernameNotFoundException("User not found with username: " + username));
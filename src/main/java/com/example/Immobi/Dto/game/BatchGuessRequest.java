@@ -0,0 +1,30 @@
+package com.example.Immobi.Dto.game;
+
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * Request DTO for playing several guesses in one call
+ */
+@Data
+public class BatchGuessRequest {
+    
+    /**
+     * The maximum number of guesses in one batch
+     */
+    public static final int MAX_BATCH_SIZE = 100;
+    
+    @NotEmpty(message = "At least one guess is required")
+    @Size(max = MAX_BATCH_SIZE, message = "At most " + MAX_BATCH_SIZE + " guesses per batch")
+    private List<
+        @NotNull(message = "Guessed number is required")
+        @Min(value = GuessRequest.MIN_GUESS_NUMBER, message = "Number must be at least " + GuessRequest.MIN_GUESS_NUMBER)
+        @Max(value = GuessRequest.MAX_GUESS_NUMBER, message = "Number must be at most " + GuessRequest.MAX_GUESS_NUMBER)
+        Integer> numbers;
+}
@@ -0,0 +1,48 @@
+package com.example.Immobi.Dto.game;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Response DTO for a batch of guesses
+ * Guesses are played in request order until the batch or the player's turns run out
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchGuessResponse {
+    /**
+     * Number of guesses played
+     */
+    private int played;
+    
+    /**
+     * Number of correct guesses
+     */
+    private int wins;
+    
+    /**
+     * Whether each played guess was correct, in request order
+     */
+    private List<Boolean> correct;
+    
+    /**
+     * The number generated for each played guess, in request order
+     */
+    private List<Integer> generatedNumbers;
+    
+    /**
+     * Number of turns remaining for the player
+     */
+    private int remainingTurns;
+    
+    /**
+     * Current score of the player
+     */
+    private int score;
+}
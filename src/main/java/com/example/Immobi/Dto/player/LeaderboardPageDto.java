@@ -0,0 +1,30 @@
+package com.example.Immobi.Dto.player;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * DTO for one page of the leaderboard
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class LeaderboardPageDto implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Entries of this page, best first
+     */
+    private List<LeaderboardEntryDto> entries;
+    
+    /**
+     * Opaque cursor for the next page, null on the last page
+     */
+    private String nextCursor;
+}
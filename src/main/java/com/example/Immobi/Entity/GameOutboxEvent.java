@@ -0,0 +1,51 @@
+package com.example.Immobi.Entity;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+/**
+ * Leaderboard and profile change of a player, written in the transaction that changed the player's stats
+ * and applied to Redis after commit by the outbox relay
+ */
+@Entity
+@Table(name = "game_outbox")
+@NoArgsConstructor
+@Getter
+public class GameOutboxEvent {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    @Column(nullable = false)
+    private String username;
+
+    /**
+     * Player's score after the change
+     */
+    @Column(nullable = false)
+    private Integer score;
+
+    /**
+     * Wins to add to the time-windowed leaderboards
+     */
+    @Column(nullable = false)
+    private Integer wins;
+
+    @Column(nullable = false)
+    private Instant createdAt;
+
+    public GameOutboxEvent(Long userId, String username, int score, int wins) {
+        this.userId = userId;
+        this.username = username;
+        this.score = score;
+        this.wins = wins;
+        this.createdAt = Instant.now();
+    }
+}
@@ -10,13 +10,13 @@ import lombok.Setter;
  * Entity for tracking player's game statistics
  */
 @Entity
-@Table(name = "game_stats")
+@Table(name = "game_stats") // Indexes and fillfactor: db/migration/V1__create_schema.sql
 @NoArgsConstructor
 @Getter
 @Setter
 public class GameStats {
     
-    private static final int DEFAULT_INITIAL_TURNS = 5;
+    public static final int DEFAULT_INITIAL_TURNS = 5;
     
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -31,6 +31,12 @@ public class GameStats {
     
     @Column(nullable = false)
     private Integer remainingTurns = DEFAULT_INITIAL_TURNS;
+    
+    /**
+     * Raised by the database on every update of the row (V4 migration), never written from here
+     */
+    @Column(nullable = false, insertable = false, updatable = false)
+    private Long version;
 
     /**
      * Create game stats for a new player
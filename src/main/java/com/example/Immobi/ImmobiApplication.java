@@ -1,11 +1,13 @@
 package com.example.Immobi;
 
+import com.example.Immobi.Service.LeaderboardMigrationService;
 import com.example.Immobi.Service.LeaderboardService;
 import org.springframework.boot.CommandLineRunner;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.cache.annotation.EnableCaching;
 import org.springframework.context.annotation.Bean;
+import org.springframework.scheduling.annotation.EnableScheduling;
 import org.springframework.transaction.annotation.EnableTransactionManagement;
 
 /**
@@ -15,6 +17,7 @@ import org.springframework.transaction.annotation.EnableTransactionManagement;
 @SpringBootApplication
 @EnableCaching
 @EnableTransactionManagement
+@EnableScheduling
 public class ImmobiApplication {
 
 	public static void main(String[] args) {
@@ -25,8 +28,10 @@ public class ImmobiApplication {
 	 * Initialize application data at startup
 	 */
 	@Bean
-	public CommandLineRunner initializeData(LeaderboardService leaderboardService) {
+	public CommandLineRunner initializeData(LeaderboardMigrationService leaderboardMigrationService,
+											LeaderboardService leaderboardService) {
 		return args -> {
+			leaderboardMigrationService.migrateLegacyFormat();
 			leaderboardService.initializeLeaderboard();
 		};
 	}
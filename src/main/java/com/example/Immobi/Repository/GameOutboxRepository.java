@@ -0,0 +1,25 @@
+package com.example.Immobi.Repository;
+
+import com.example.Immobi.Entity.GameOutboxEvent;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+/**
+ * Repository for the leaderboard and profile outbox
+ */
+@Repository
+public interface GameOutboxRepository extends JpaRepository<GameOutboxEvent, Long> {
+
+    /**
+     * Lock the oldest events not locked by another relay
+     *
+     * @param limit Maximum number of events
+     * @return Events in insertion order
+     */
+    @Query(value = "SELECT * FROM game_outbox ORDER BY id LIMIT :limit FOR UPDATE SKIP LOCKED", nativeQuery = true)
+    List<GameOutboxEvent> lockOldest(@Param("limit") int limit);
+}
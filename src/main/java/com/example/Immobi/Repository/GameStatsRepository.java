@@ -2,13 +2,16 @@ package com.example.Immobi.Repository;
 
 import com.example.Immobi.Entity.GameStats;
 import com.example.Immobi.Entity.User;
+import com.example.Immobi.Repository.projection.BatchTurnResult;
+import com.example.Immobi.Repository.projection.LeaderboardRow;
+import com.example.Immobi.Repository.projection.PlayerProfileRow;
+import com.example.Immobi.Repository.projection.TurnResult;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
-import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
-import jakarta.persistence.LockModeType;
 import java.util.List;
 import java.util.Optional;
 
@@ -16,36 +19,161 @@ import java.util.Optional;
 public interface GameStatsRepository extends JpaRepository<GameStats, Long> {
     
     /**
-     * Find stats by player with pessimistic write lock
+     * Consume one turn and add the score delta in a single statement
+     * The row is only updated while turns remain; concurrent calls queue on the row and re-check the
+     * condition against the committed value, so turns can neither be lost nor go negative
+     *
+     * @param playerId User ID
+     * @param scoreDelta Points won with this turn
+     * @return New score, remaining turns and version, empty if the player has no turns left (or no stats)
      */
-    @Lock(LockModeType.PESSIMISTIC_WRITE)
-    @Query("SELECT gs FROM GameStats gs WHERE gs.player.id = :playerId")
-    Optional<GameStats> findByUserIdWithLock(@Param("playerId") Long playerId);
+    @Query(value = "UPDATE game_stats SET remaining_turns = remaining_turns - 1, score = score + :scoreDelta " +
+                   "WHERE user_id = :playerId AND remaining_turns > 0 " +
+                   "RETURNING score AS \"score\", remaining_turns AS \"remainingTurns\", version AS \"version\"",
+           nativeQuery = true)
+    Optional<TurnResult> consumeTurn(@Param("playerId") Long playerId, @Param("scoreDelta") int scoreDelta);
+    
+    /**
+     * Consume up to the given number of turns and add the points they won in a single statement
+     * The row is locked by the CTE, so the turns read and the turns written are the same version
+     *
+     * @param playerId User ID
+     * @param guesses Number of turns requested
+     * @param cumulativePoints Comma-separated points won by the first 1, 2, ... guesses
+     * @return New score, remaining turns, version and turns played, empty if no turns are left (or no stats)
+     */
+    @Query(value = "WITH before AS (SELECT id, remaining_turns FROM game_stats WHERE user_id = :playerId FOR UPDATE) " +
+                   "UPDATE game_stats gs SET " +
+                   "remaining_turns = before.remaining_turns - LEAST(before.remaining_turns, :guesses), " +
+                   "score = gs.score + (CAST(string_to_array(:cumulativePoints, ',') AS int[]))[LEAST(before.remaining_turns, :guesses)] " +
+                   "FROM before WHERE gs.id = before.id AND before.remaining_turns > 0 " +
+                   "RETURNING gs.score AS \"score\", gs.remaining_turns AS \"remainingTurns\", gs.version AS \"version\", " +
+                   "LEAST(before.remaining_turns, :guesses) AS \"played\"",
+           nativeQuery = true)
+    Optional<BatchTurnResult> consumeTurns(@Param("playerId") Long playerId,
+                                           @Param("guesses") int guesses,
+                                           @Param("cumulativePoints") String cumulativePoints);
+    
+    /**
+     * Add turns to a player's stats in a single statement, on top of whatever a concurrent guess left
+     *
+     * @return New score, remaining turns and version, empty if the player has no stats
+     */
+    @Query(value = "UPDATE game_stats SET remaining_turns = remaining_turns + :turns WHERE user_id = :playerId " +
+                   "RETURNING score AS \"score\", remaining_turns AS \"remainingTurns\", version AS \"version\"",
+           nativeQuery = true)
+    Optional<TurnResult> addTurns(@Param("playerId") Long playerId, @Param("turns") int turns);
+    
+    /**
+     * Set a player's remaining turns in a single statement
+     *
+     * @return New score, remaining turns and version, empty if the player has no stats
+     */
+    @Query(value = "UPDATE game_stats SET remaining_turns = :turns WHERE user_id = :playerId " +
+                   "RETURNING score AS \"score\", remaining_turns AS \"remainingTurns\", version AS \"version\"",
+           nativeQuery = true)
+    Optional<TurnResult> setTurns(@Param("playerId") Long playerId, @Param("turns") int turns);
+    
+    /**
+     * Create a player's stats unless they exist
+     * Two first requests of one player may both try; the second waits for the first and inserts nothing
+     *
+     * @return ID of the new row, empty if the player already had stats
+     */
+    @Query(value = "INSERT INTO game_stats (user_id, score, remaining_turns) VALUES (:playerId, 0, :turns) " +
+                   "ON CONFLICT (user_id) DO NOTHING RETURNING id",
+           nativeQuery = true)
+    Optional<Long> insertIfAbsent(@Param("playerId") Long playerId, @Param("turns") int turns);
+    
+    /**
+     * Check whether a player has stats
+     */
+    boolean existsByPlayerId(Long playerId);
     
     /**
      * Find stats by player
      */
     Optional<GameStats> findByPlayer(User player);
     
+    String TOP_PLAYERS_SQL =
+            "SELECT gs.id AS id, gs.user_id AS userId, u.username AS username, gs.score AS score " +
+            "FROM game_stats gs JOIN users u ON u.id = gs.user_id " +
+            "ORDER BY gs.score DESC, gs.id LIMIT :limit";
+    
+    // The first condition bounds the index scan, the second only filters the ties of the cursor's score
+    String TOP_PLAYERS_AFTER_SQL =
+            "SELECT gs.id AS id, gs.user_id AS userId, u.username AS username, gs.score AS score " +
+            "FROM game_stats gs JOIN users u ON u.id = gs.user_id " +
+            "WHERE gs.score <= :afterScore AND (gs.score < :afterScore OR gs.id > :afterId) " +
+            "ORDER BY gs.score DESC, gs.id LIMIT :limit";
+    
     /**
-     * Find top players ordered by score
+     * Find top players ordered by score, ties by GameStats ID
+     * Reads the first rows of the (score DESC, id) index instead of sorting the table
      * 
      * @param limit Number of players to return
-     * @return List of GameStats for top players
+     * @return Leaderboard rows of the top players
+     */
+    @Query(value = TOP_PLAYERS_SQL, nativeQuery = true)
+    List<LeaderboardRow> findTopPlayers(@Param("limit") int limit);
+    
+    /**
+     * Find the players ranked after a given row, in the order of {@link #findTopPlayers}
+     * 
+     * @param afterScore Score of the last row of the previous page
+     * @param afterId GameStats ID of the last row of the previous page
+     * @param limit Number of players to return
+     * @return Next page of leaderboard rows
+     */
+    @Query(value = TOP_PLAYERS_AFTER_SQL, nativeQuery = true)
+    List<LeaderboardRow> findTopPlayersAfter(@Param("afterScore") int afterScore,
+                                             @Param("afterId") long afterId,
+                                             @Param("limit") int limit);
+    
+    /**
+     * Find the profile fields of a player by user id
+     * Selects only the four columns the profile shows, nothing is registered in the persistence context.
+     * Not read-only, so never sent to a replica: the profile is reloaded right after the player's own change
+     * and cached, and must include that change.
+     * 
+     * @return Profile row, empty if the player has no stats
      */
-    @Query("SELECT gs FROM GameStats gs JOIN FETCH gs.player ORDER BY gs.score DESC")   
-    List<GameStats> findTopPlayersByScore(int limit);
+    @Query("SELECT gs.score AS score, gs.remainingTurns AS remainingTurns, gs.version AS version, " +
+           "p.username AS username, p.email AS email FROM GameStats gs JOIN gs.player p WHERE p.id = :playerId")
+    Optional<PlayerProfileRow> findProfileByPlayerId(@Param("playerId") Long playerId);
     
     /**
-     * Find player stats by user id with eager loading of player data
+     * Stream leaderboard rows in keyset-paged chunks ordered by GameStats ID
+     * Not read-only, so never sent to a replica: the rebuild only mirrors changes made after it started, and
+     * a lagging chunk would miss the ones made just before.
+     *
+     * @param afterId Last ID of the previous chunk (0 for the first chunk)
+     * @param pageable Chunk size (page number must stay 0, the cursor does the paging)
+     * @return Next chunk of rows
      */
-    @Query("SELECT gs FROM GameStats gs JOIN FETCH gs.player WHERE gs.player.id = :playerId")
-    Optional<GameStats> findByPlayerIdWithPlayer(@Param("playerId") Long playerId);
+    @Query("SELECT gs.id AS id, p.id AS userId, p.username AS username, gs.score AS score " +
+           "FROM GameStats gs JOIN gs.player p WHERE gs.id > :afterId ORDER BY gs.id")
+    List<LeaderboardRow> findLeaderboardRowsAfter(@Param("afterId") Long afterId, Pageable pageable);
+    
+    String RANK_FOR_SCORE_SQL =
+            "SELECT CAST(1 + COALESCE(SUM(h.players), 0) AS int) FROM score_histogram h WHERE h.score > :score";
     
     /**
      * Get player's rank based on score
+     * Sums the score histogram over the higher scores instead of counting players
+     * 
+     * @return 1-based rank, empty if the player has no stats
      */
-    @Query(value = "SELECT (COUNT(*) + 1) FROM game_stats WHERE score > (SELECT score FROM game_stats WHERE player_id = :playerId)", 
+    @Query(value = "SELECT CAST(1 + COALESCE((SELECT SUM(h.players) FROM score_histogram h WHERE h.score > gs.score), 0) AS int) " +
+                   "FROM game_stats gs WHERE gs.user_id = :playerId",
            nativeQuery = true)
-    int getPlayerRank(@Param("playerId") Long playerId);
+    Optional<Integer> getPlayerRank(@Param("playerId") Long playerId);
+    
+    /**
+     * Get the rank a score holds, from the score histogram
+     * 
+     * @return 1-based rank
+     */
+    @Query(value = RANK_FOR_SCORE_SQL, nativeQuery = true)
+    int getRankForScore(@Param("score") int score);
 } 
\ No newline at end of file
@@ -0,0 +1,12 @@
+package com.example.Immobi.Repository.projection;
+
+/**
+ * Player's stats right after several turns were consumed at once
+ */
+public interface BatchTurnResult extends TurnResult {
+
+    /**
+     * Number of turns actually consumed, at most the number requested
+     */
+    Integer getPlayed();
+}
@@ -0,0 +1,27 @@
+package com.example.Immobi.Repository.projection;
+
+/**
+ * Minimal leaderboard row read straight from the database, without loading entities
+ */
+public interface LeaderboardRow {
+
+    /**
+     * GameStats ID, used as the keyset pagination cursor
+     */
+    Long getId();
+
+    /**
+     * User ID
+     */
+    Long getUserId();
+
+    /**
+     * Username
+     */
+    String getUsername();
+
+    /**
+     * Player's score
+     */
+    Integer getScore();
+}
@@ -0,0 +1,32 @@
+package com.example.Immobi.Repository.projection;
+
+/**
+ * Stats and account fields of a player profile, read in one query without loading entities
+ */
+public interface PlayerProfileRow {
+
+    /**
+     * Player's score
+     */
+    Integer getScore();
+
+    /**
+     * Turns left
+     */
+    Integer getRemainingTurns();
+
+    /**
+     * Username
+     */
+    String getUsername();
+
+    /**
+     * Email
+     */
+    String getEmail();
+
+    /**
+     * Version of the stats the row was read from
+     */
+    Long getVersion();
+}
@@ -0,0 +1,22 @@
+package com.example.Immobi.Repository.projection;
+
+/**
+ * Player's stats right after a turn was consumed
+ */
+public interface TurnResult {
+
+    /**
+     * Player's score after the turn
+     */
+    Integer getScore();
+
+    /**
+     * Turns left after the turn
+     */
+    Integer getRemainingTurns();
+
+    /**
+     * Version of the stats after the turn, raised by every change of them
+     */
+    Long getVersion();
+}
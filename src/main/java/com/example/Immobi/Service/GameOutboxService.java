@@ -0,0 +1,131 @@
+package com.example.Immobi.Service;
+
+import com.example.Immobi.Entity.GameOutboxEvent;
+import com.example.Immobi.Entity.User;
+import com.example.Immobi.Repository.GameOutboxRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.StringRedisConnection;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Transactional outbox for the leaderboard side of a stats change
+ * The leaderboard update of a change is recorded as a row in the transaction that
+ * changes the stats, so Redis only ever sees committed changes and the row lock is not held across Redis
+ * round trips. The relay drains the outbox in batches: rows are locked with SKIP LOCKED so several nodes
+ * can relay at once, coalesced per player, and applied in one Redis pipeline before they are deleted.
+ * Delivery is at least once: all-time scores are only ever raised, so a replayed row cannot lower them, and
+ * the wins of a row are counted on the period leaderboards once, for the periods the row was recorded in.
+ */
+@Service
+public class GameOutboxService {
+
+    private static final Logger log = LoggerFactory.getLogger(GameOutboxService.class);
+    private static final int MAX_BATCHES_PER_RUN = 20;
+
+    /**
+     * Score change of one player within a batch: latest score and username
+     */
+    private static final class PlayerChange {
+        private String username;
+        private int score;
+    }
+
+    private final GameOutboxRepository gameOutboxRepository;
+    private final LeaderboardService leaderboardService;
+    private final StringRedisTemplate redisTemplate;
+    private final TransactionTemplate relayTransaction;
+    private final int batchSize;
+
+    public GameOutboxService(GameOutboxRepository gameOutboxRepository,
+                             LeaderboardService leaderboardService,
+                             StringRedisTemplate redisTemplate,
+                             PlatformTransactionManager transactionManager,
+                             @Value("${game.outbox.batch-size:500}") int batchSize) {
+        this.gameOutboxRepository = gameOutboxRepository;
+        this.leaderboardService = leaderboardService;
+        this.redisTemplate = redisTemplate;
+        this.relayTransaction = new TransactionTemplate(transactionManager);
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Record a player's new score and the wins that led to it
+     * Joins the caller's transaction, so the record commits or rolls back with the stats change
+     */
+    @Transactional
+    public void record(User player, int score, int wins) {
+        gameOutboxRepository.save(new GameOutboxEvent(player.getId(), player.getUsername(), score, wins));
+    }
+
+    /**
+     * Relay outbox rows to Redis until the outbox is empty or the per-run batch limit is reached
+     */
+    @Scheduled(fixedDelayString = "${game.outbox.relay-interval-ms:100}")
+    public void relay() {
+        try {
+            for (int batch = 0; batch < MAX_BATCHES_PER_RUN; batch++) {
+                Integer relayed = relayTransaction.execute(status -> relayBatch());
+                if (relayed == null || relayed < batchSize) {
+                    return;
+                }
+            }
+        } catch (Exception e) {
+            // The batch was rolled back and is relayed again on the next run
+            log.error("Error relaying outbox: {}", e.getMessage(), e);
+        }
+    }
+
+    private int relayBatch() {
+        List<GameOutboxEvent> events = gameOutboxRepository.lockOldest(batchSize);
+        if (events.isEmpty()) {
+            return 0;
+        }
+
+        Map<Long, PlayerChange> changes = new LinkedHashMap<>();
+        List<Long> ids = new ArrayList<>(events.size());
+        for (GameOutboxEvent event : events) {
+            PlayerChange change = changes.computeIfAbsent(event.getUserId(), userId -> new PlayerChange());
+            change.username = event.getUsername();
+            change.score = Math.max(change.score, event.getScore());
+            ids.add(event.getId());
+        }
+
+        // Any failed command fails the pipeline, which rolls the batch back
+        redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            queueChanges((StringRedisConnection) connection, changes, events);
+            return null;
+        });
+        changes.values().forEach(change -> leaderboardService.onScoreChanged(change.score));
+
+        gameOutboxRepository.deleteAllByIdInBatch(ids);
+        log.debug("Relayed {} outbox events for {} players", events.size(), changes.size());
+        return events.size();
+    }
+
+    private void queueChanges(StringRedisConnection connection, Map<Long, PlayerChange> changes,
+                              List<GameOutboxEvent> events) {
+        leaderboardService.loadScripts(connection);
+        changes.forEach((userId, change) ->
+                leaderboardService.queueScoreUpdate(connection, userId, change.username, change.score));
+        // Wins are not summed: each row is applied once, to the periods of the time it was recorded at
+        for (GameOutboxEvent event : events) {
+            if (event.getWins() > 0) {
+                leaderboardService.queueWins(connection, event.getUserId(), event.getWins(),
+                        event.getId(), event.getCreatedAt());
+            }
+        }
+    }
+}
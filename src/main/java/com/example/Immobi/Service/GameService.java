@@ -1,5 +1,7 @@
 package com.example.Immobi.Service;
 
+import com.example.Immobi.Dto.game.BatchGuessRequest;
+import com.example.Immobi.Dto.game.BatchGuessResponse;
 import com.example.Immobi.Dto.game.GuessRequest;
 import com.example.Immobi.Dto.game.GuessResponse;
 import com.example.Immobi.Core.exception.BusinessException;
@@ -7,13 +9,22 @@ import com.example.Immobi.Core.exception.ErrorCode;
 import com.example.Immobi.Entity.GameStats;
 import com.example.Immobi.Entity.User;
 import com.example.Immobi.Repository.GameStatsRepository;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
+import com.example.Immobi.Repository.projection.BatchTurnResult;
+import com.example.Immobi.Repository.projection.TurnResult;
+import com.example.Immobi.Service.outcome.OutcomeGenerator;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Isolation;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
 
-import java.util.Random;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
 
 /**
  * Author: QuanNH
@@ -22,109 +33,227 @@ import java.util.Random;
 @Service
 public class GameService {
     
-    private static final Logger log = LoggerFactory.getLogger(GameService.class);
-    private static final int MIN_NUMBER = 1;
-    private static final int MAX_NUMBER = 5;
-    private static final int WIN_THRESHOLD = 5; // 0-4 = win (5% of 0-99)
+    public static final int MIN_NUMBER = 1;
+    public static final int MAX_NUMBER = 5;
+    public static final int WIN_THRESHOLD = 5; // 0-4 = win (5% of 0-99)
     private static final int TURNS_TO_ADD = 5;
+    // Thrown for every rejected guess, so it is created once and carries no stack trace
+    private static final BusinessException NO_TURNS_LEFT =
+            BusinessException.withoutStackTrace(ErrorCode.NO_TURNS_LEFT, "No turns remaining");
 
     private final GameStatsRepository gameStatsRepository;
     private final PlayerService playerService;
     private final LeaderboardService leaderboardService;
-    private final Random randomGenerator;
+    private final RedisGameStatsService redisGameStatsService;
+    private final GuessLaneService guessLaneService;
+    private final GameOutboxService gameOutboxService;
+    private final TurnGuardService turnGuardService;
+    private final TransactionRetryService transactionRetryService;
+    private final TransactionTemplate guessTransaction;
+    private final TransactionTemplate statsTransaction;
+    private final OutcomeGenerator outcomeGenerator;
+    private final Counter singleRequests;
+    private final Counter singleGuesses;
+    private final Counter batchRequests;
+    private final Counter batchGuesses;
+    private final Counter fastRejects;
 
     public GameService(GameStatsRepository gameStatsRepository, 
                       PlayerService playerService,
-                      LeaderboardService leaderboardService) {
+                      LeaderboardService leaderboardService,
+                      RedisGameStatsService redisGameStatsService,
+                      GuessLaneService guessLaneService,
+                      GameOutboxService gameOutboxService,
+                      TurnGuardService turnGuardService,
+                      TransactionRetryService transactionRetryService,
+                      OutcomeGenerator outcomeGenerator,
+                      PlatformTransactionManager transactionManager,
+                      MeterRegistry meterRegistry) {
         this.gameStatsRepository = gameStatsRepository;
         this.playerService = playerService;
         this.leaderboardService = leaderboardService;
-        this.randomGenerator = new Random();
+        this.redisGameStatsService = redisGameStatsService;
+        this.guessLaneService = guessLaneService;
+        this.gameOutboxService = gameOutboxService;
+        this.turnGuardService = turnGuardService;
+        this.transactionRetryService = transactionRetryService;
+        this.guessTransaction = new TransactionTemplate(transactionManager);
+        this.guessTransaction.setIsolationLevel(TransactionDefinition.ISOLATION_READ_COMMITTED);
+        this.statsTransaction = new TransactionTemplate(transactionManager);
+        this.outcomeGenerator = outcomeGenerator;
+        // Requests and guesses are counted apart, so throughput can be read per request and per guess
+        this.singleRequests = Counter.builder("game.guess.requests").tag("type", "single").register(meterRegistry);
+        this.singleGuesses = Counter.builder("game.guess.plays").tag("type", "single").register(meterRegistry);
+        this.batchRequests = Counter.builder("game.guess.requests").tag("type", "batch").register(meterRegistry);
+        this.batchGuesses = Counter.builder("game.guess.plays").tag("type", "batch").register(meterRegistry);
+        this.fastRejects = Counter.builder("game.guess.fast_rejects").register(meterRegistry);
     }
 
     /**
      * Process a player's guess with fixed 5% win rate
-     * Uses SERIALIZABLE isolation level and pessimistic locking to handle concurrent requests
+     * In the default database mode the turn is consumed and the score updated by one conditional
+     * UPDATE ... RETURNING at READ COMMITTED, without an explicit row lock; the leaderboard is updated
+     * after commit through the outbox and the new profile is written through to the cache. In the Redis mode one script
+     * does the same on the player's Redis stats and updates the leaderboard; the database follows asynchronously.
+     * With lanes enabled the turn is consumed on the player's single-writer lane. Players known to have
+     * no turns left are rejected in memory first, and transactions aborted by contention are retried.
      */
-    @Transactional(isolation = Isolation.SERIALIZABLE)
     public GuessResponse processGuess(User player, GuessRequest guessRequest) {
-        GameStats playerStats = getPlayerStatsWithLock(player);
-        validatePlayerHasTurnsRemaining(playerStats);
-        
-        int generatedNumber;
-        boolean isCorrect;
+        rejectIfNoTurnsLeft(player);
         int guessedNumber = guessRequest.getNumber();
+        boolean isCorrect = outcomeGenerator.isWin();
+        int generatedNumber = isCorrect ? guessedNumber : outcomeGenerator.differentNumber(guessedNumber);
 
-        isCorrect = determineWinByProbability();
-        generatedNumber = isCorrect ? guessedNumber : generateDifferentNumber(guessedNumber);
-
-        // Consume turn
-        playerStats.consumeTurn();
-
-        // Update Redis Sorted Set for real-time leaderboard
-        if (isCorrect) {
-            playerStats.awardPoint();
-            leaderboardService.updatePlayerScore(player.getId(), player.getUsername(), playerStats.getScore());
-            log.info("Updated score in leaderboard for user ID: {}", player.getId());
-        }
-
-        // Profile refresh
-        playerService.refreshPlayerProfile(player.getId());
-
-        // Save changes to database
-        gameStatsRepository.save(playerStats);
+        TurnResult turn = guessLaneService.execute(player.getId(), () -> {
+            TurnResult result = redisGameStatsService.isEnabled()
+                    ? consumeTurnsInRedis(player, new int[] {isCorrect ? 1 : 0})
+                    : transactionRetryService.execute("guess", player.getId(),
+                            () -> guessTransaction.execute(status -> consumeTurnInDatabase(player, isCorrect)));
+            playerService.updatePlayerProfile(player, result);
+            if (result.getRemainingTurns() == 0) {
+                turnGuardService.markExhausted(player.getId());
+            }
+            return result;
+        });
+        singleRequests.increment();
+        singleGuesses.increment();
 
         return createGuessResponse(
             isCorrect,
             generatedNumber, 
             guessedNumber, 
-            playerStats.getRemainingTurns(), 
-            playerStats.getScore()
+            turn.getRemainingTurns(), 
+            turn.getScore()
         );
     }
     
+    private TurnResult consumeTurnInDatabase(User player, boolean isCorrect) {
+        // Consume turn and award the point in one statement
+        TurnResult turn = consumeTurn(player, isCorrect ? 1 : 0);
+
+        // Leaderboard update is relayed to Redis after commit
+        gameOutboxService.record(player, turn.getScore(), isCorrect ? 1 : 0);
+        return turn;
+    }
+    
     /**
-     * Fixed 5% probability for player to win
+     * Play several guesses in one call
+     * Turns are consumed and points awarded for all of them by one statement (one script in the Redis mode),
+     * and a single leaderboard and profile update is made with the final score. Guesses past the player's
+     * remaining turns are not played.
      */
-    private boolean determineWinByProbability() {
-        int randomValue = randomGenerator.nextInt(100);
-        return randomValue < WIN_THRESHOLD;
+    public BatchGuessResponse processGuessBatch(User player, BatchGuessRequest batchRequest) {
+        rejectIfNoTurnsLeft(player);
+        List<Integer> guessedNumbers = batchRequest.getNumbers();
+        boolean[] correct = new boolean[guessedNumbers.size()];
+        int[] generatedNumbers = new int[guessedNumbers.size()];
+        int[] cumulativePoints = new int[guessedNumbers.size()];
+        int points = 0;
+        for (int i = 0; i < guessedNumbers.size(); i++) {
+            correct[i] = outcomeGenerator.isWin();
+            generatedNumbers[i] = correct[i] ? guessedNumbers.get(i) : outcomeGenerator.differentNumber(guessedNumbers.get(i));
+            points += correct[i] ? 1 : 0;
+            cumulativePoints[i] = points;
+        }
+
+        BatchTurnResult turns = guessLaneService.execute(player.getId(), () -> {
+            BatchTurnResult result = redisGameStatsService.isEnabled()
+                    ? consumeTurnsInRedis(player, cumulativePoints)
+                    : transactionRetryService.execute("guess-batch", player.getId(),
+                            () -> guessTransaction.execute(status -> consumeTurnsInDatabase(player, cumulativePoints)));
+            playerService.updatePlayerProfile(player, result);
+            if (result.getRemainingTurns() == 0) {
+                turnGuardService.markExhausted(player.getId());
+            }
+            return result;
+        });
+        int played = turns.getPlayed();
+        batchRequests.increment();
+        batchGuesses.increment(played);
+
+        List<Boolean> playedCorrect = new ArrayList<>(played);
+        List<Integer> playedNumbers = new ArrayList<>(played);
+        for (int i = 0; i < played; i++) {
+            playedCorrect.add(correct[i]);
+            playedNumbers.add(generatedNumbers[i]);
+        }
+        return BatchGuessResponse.builder()
+                .played(played)
+                .wins(cumulativePoints[played - 1])
+                .correct(playedCorrect)
+                .generatedNumbers(playedNumbers)
+                .remainingTurns(turns.getRemainingTurns())
+                .score(turns.getScore())
+                .build();
+    }
+    
+    private BatchTurnResult consumeTurnsInDatabase(User player, int[] cumulativePoints) {
+        String points = Arrays.stream(cumulativePoints).mapToObj(String::valueOf).collect(Collectors.joining(","));
+        Optional<BatchTurnResult> turns = gameStatsRepository.consumeTurns(player.getId(), cumulativePoints.length, points);
+        if (turns.isEmpty() && !gameStatsRepository.existsByPlayerId(player.getId())) {
+            createPlayerStatsIfAbsent(player);
+            turns = gameStatsRepository.consumeTurns(player.getId(), cumulativePoints.length, points);
+        }
+        BatchTurnResult result = turns.orElseThrow(() -> noTurnsLeft(player));
+
+        gameOutboxService.record(player, result.getScore(), cumulativePoints[result.getPlayed() - 1]);
+        return result;
     }
     
     /**
-     * Generate a number different from the player's guess
+     * Turns, score and all-time leaderboard are updated by a single script
      */
-    private int generateDifferentNumber(int guessedNumber) {
-        int[] possibleNumbers = new int[MAX_NUMBER - MIN_NUMBER];
-        int index = 0;
-        
-        for (int i = MIN_NUMBER; i <= MAX_NUMBER; i++) {
-            if (i != guessedNumber) {
-                possibleNumbers[index++] = i;
-            }
+    private BatchTurnResult consumeTurnsInRedis(User player, int[] cumulativePoints) {
+        RedisGameStatsService.Result result = redisGameStatsService.consumeTurns(player, cumulativePoints);
+        if (result.getStatus() == RedisGameStatsService.Status.NOT_LOADED) {
+            redisGameStatsService.load(statsTransaction.execute(status -> getOrInitializePlayerStats(player)));
+            result = redisGameStatsService.consumeTurns(player, cumulativePoints);
         }
-        
-        return possibleNumbers[randomGenerator.nextInt(possibleNumbers.length)];
+        if (result.getStatus() != RedisGameStatsService.Status.OK) {
+            throw noTurnsLeft(player);
+        }
+        int wins = cumulativePoints[result.getStats().getPlayed() - 1];
+        if (wins > 0) {
+            leaderboardService.onScoreChanged(result.getStats().getScore());
+            leaderboardService.recordWins(player.getId(), wins);
+        }
+        return result.getStats();
     }
     
-    private GameStats getPlayerStatsWithLock(User player) {
-        return gameStatsRepository.findByUserIdWithLock(player.getId())
-                .orElseGet(() -> createNewPlayerStats(player));
+    /**
+     * Reject a guess of a player known to have no turns left, before any transaction or Redis call
+     */
+    private void rejectIfNoTurnsLeft(User player) {
+        if (turnGuardService.isExhausted(player.getId())) {
+            fastRejects.increment();
+            throw NO_TURNS_LEFT;
+        }
     }
     
-    private GameStats createNewPlayerStats(User player) {
-        GameStats newStats = new GameStats(player);
-        GameStats savedStats = gameStatsRepository.save(newStats);
-        
-        // Initialize player in leaderboard with score 0
-        leaderboardService.updatePlayerScore(player.getId(), player.getUsername(), 0);
-        
-        return savedStats;
+    private BusinessException noTurnsLeft(User player) {
+        turnGuardService.markExhausted(player.getId());
+        return NO_TURNS_LEFT;
     }
     
-    private void validatePlayerHasTurnsRemaining(GameStats playerStats) {
-        if (!playerStats.hasTurnsRemaining()) {
-            throw new BusinessException(ErrorCode.NO_TURNS_LEFT, "No turns remaining");
+    /**
+     * Consume a turn, creating the player's stats first if they have none yet
+     */
+    private TurnResult consumeTurn(User player, int scoreDelta) {
+        Optional<TurnResult> turn = gameStatsRepository.consumeTurn(player.getId(), scoreDelta);
+        if (turn.isEmpty() && !gameStatsRepository.existsByPlayerId(player.getId())) {
+            createPlayerStatsIfAbsent(player);
+            turn = gameStatsRepository.consumeTurn(player.getId(), scoreDelta);
+        }
+        return turn.orElseThrow(() -> noTurnsLeft(player));
+    }
+    
+    /**
+     * Create the player's stats, unless a concurrent request of the player just did
+     */
+    private void createPlayerStatsIfAbsent(User player) {
+        if (gameStatsRepository.insertIfAbsent(player.getId(), GameStats.DEFAULT_INITIAL_TURNS).isPresent()) {
+            // Initialize player in leaderboard with score 0
+            gameOutboxService.record(player, 0, 0);
         }
     }
     
@@ -149,41 +278,85 @@ public class GameService {
      * @param player The player buying turns
      * @return Updated game stats with new turns count
      */
-    @Transactional
     public GameStats buyAdditionalTurns(User player) {
-        GameStats playerStats = getOrInitializePlayerStats(player);
-        
-        // TODO: Implement payment processing with VNPAY, PAYPAL, MOMO, etc.
+        // TODO: Implement payment processing with VNPAY, PAYPAL, MOMO, etc. (before the retried transaction)
         
         // Add turns after successful payment
-        playerStats.addTurns(TURNS_TO_ADD);
-        
-        // Save changes to database
-        GameStats updatedStats = gameStatsRepository.save(playerStats);
+        return transactionRetryService.execute("buy-turns", player.getId(),
+                () -> statsTransaction.execute(status -> addPlayerTurns(player)));
+    }
+    
+    private GameStats addPlayerTurns(User player) {
+        GameStats playerStats = getOrInitializePlayerStats(player);
+        turnGuardService.onTurnsAdded(player.getId());
+        if (redisGameStatsService.isEnabled()) {
+            return changeTurnsInRedis(playerStats, () -> redisGameStatsService.addTurns(player.getId(), TURNS_TO_ADD));
+        }
+        // Add on top of the committed turns, so a concurrent guess is not overwritten
+        TurnResult turns = gameStatsRepository.addTurns(player.getId(), TURNS_TO_ADD).orElseThrow();
         
-        // Update player profile in cache (turns count changed)
-        playerService.refreshPlayerProfile(player.getId());
+        // Update player profile in cache (turns count changed) once committed
+        playerService.updatePlayerProfile(player, turns);
         
-        return updatedStats;
+        return detachedStats(playerStats, turns);
     }
     
-    @Transactional
     public GameStats resetPlayerTurns(User player) {
+        return transactionRetryService.execute("reset-turns", player.getId(),
+                () -> statsTransaction.execute(status -> resetTurns(player)));
+    }
+    
+    private GameStats resetTurns(User player) {
         GameStats playerStats = getOrInitializePlayerStats(player);
-        playerStats.resetTurns();
-        
-        // Save changes to database
-        GameStats updatedStats = gameStatsRepository.save(playerStats);
+        turnGuardService.onTurnsAdded(player.getId());
+        if (redisGameStatsService.isEnabled()) {
+            return changeTurnsInRedis(playerStats,
+                    () -> redisGameStatsService.setTurns(player.getId(), GameStats.DEFAULT_INITIAL_TURNS));
+        }
+        TurnResult turns = gameStatsRepository.setTurns(player.getId(), GameStats.DEFAULT_INITIAL_TURNS).orElseThrow();
         
-        // Update player profile in cache (turns count changed)
-        playerService.refreshPlayerProfile(player.getId());
+        // Update player profile in cache (turns count changed) once committed
+        playerService.updatePlayerProfile(player, turns);
         
+        return detachedStats(playerStats, turns);
+    }
+
+    /**
+     * Apply a turn change to the Redis stats and return them as a detached entity
+     * The database row is left alone; it is updated from the change stream
+     */
+    private GameStats changeTurnsInRedis(GameStats playerStats, Supplier<RedisGameStatsService.Result> change) {
+        RedisGameStatsService.Result result = change.get();
+        if (result.getStatus() == RedisGameStatsService.Status.NOT_LOADED) {
+            redisGameStatsService.load(playerStats);
+            result = change.get();
+        }
+        playerService.updatePlayerProfile(playerStats.getPlayer(), result.getStats());
+        return detachedStats(playerStats, result.getStats());
+    }
+
+    /**
+     * Copy of a player's stats entity carrying the values of a change made by a single statement or script
+     */
+    private static GameStats detachedStats(GameStats playerStats, TurnResult turns) {
+        GameStats updatedStats = new GameStats(playerStats.getPlayer());
+        updatedStats.setId(playerStats.getId());
+        updatedStats.setScore(turns.getScore());
+        updatedStats.setRemainingTurns(turns.getRemainingTurns());
+        updatedStats.setVersion(turns.getVersion());
         return updatedStats;
     }
 
-    @Transactional
-    public GameStats getOrInitializePlayerStats(User player) {
-        return gameStatsRepository.findByPlayer(player)
-                .orElseGet(() -> createNewPlayerStats(player));
+    /**
+     * Read the player's stats, creating them first if they have none yet
+     * Must run inside a transaction
+     */
+    private GameStats getOrInitializePlayerStats(User player) {
+        Optional<GameStats> stats = gameStatsRepository.findByPlayer(player);
+        if (stats.isPresent()) {
+            return stats.get();
+        }
+        createPlayerStatsIfAbsent(player);
+        return gameStatsRepository.findByPlayer(player).orElseThrow();
     }
 }
\ No newline at end of file
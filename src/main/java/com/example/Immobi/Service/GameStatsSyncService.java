@@ -0,0 +1,217 @@
+package com.example.Immobi.Service;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.redis.connection.stream.Consumer;
+import org.springframework.data.redis.connection.stream.MapRecord;
+import org.springframework.data.redis.connection.stream.ReadOffset;
+import org.springframework.data.redis.connection.stream.RecordId;
+import org.springframework.data.redis.connection.stream.StreamOffset;
+import org.springframework.data.redis.connection.stream.StreamReadOptions;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Service replaying the Redis stats change streams into the game_stats table
+ * Only used in the Redis guess mode. Each stream is leased by one node at a time (Redis lock renewed on every
+ * run) and read through a single consumer group member, so entries reach the write-behind buffer in order.
+ * Entries are acknowledged and deleted only once the write-behind flush holding them committed, and a node
+ * taking a stream over first reads the entries left unacknowledged by the previous owner. Entries carry
+ * absolute values, so replaying one twice is harmless. The lease outlives the write-behind flush interval,
+ * so a node taking over a stream cannot write before the previous owner's buffer was flushed.
+ */
+@Service
+public class GameStatsSyncService {
+
+    private static final Logger log = LoggerFactory.getLogger(GameStatsSyncService.class);
+    private static final String CONSUMER_GROUP = "game-stats-sync";
+    private static final String CONSUMER_NAME = "game-stats-sync";
+    private static final String LOCK_SUFFIX = ":sync-lock";
+    private static final String RELEASE_LOCK_SCRIPT = "scripts/lock/release.lua";
+    private static final String ERROR_BUSY_GROUP = "BUSYGROUP";
+    private static final int BATCH_SIZE = 500;
+    private static final int MAX_BATCHES_PER_RUN = 20;
+    private static final Duration LEASE_TTL = Duration.ofSeconds(30);
+
+    private final StringRedisTemplate redisTemplate;
+    private final RedisGameStatsService redisGameStatsService;
+    private final LeaderboardShardService leaderboardShardService;
+    private final GameStatsWriteBehindService gameStatsWriteBehindService;
+    private final RedisScript<Long> releaseLockScript;
+    private final String nodeToken = UUID.randomUUID().toString();
+    private final Set<String> groupsCreated = ConcurrentHashMap.newKeySet();
+    private final Set<String> streamsLeased = ConcurrentHashMap.newKeySet();
+
+    public GameStatsSyncService(StringRedisTemplate redisTemplate,
+                                RedisGameStatsService redisGameStatsService,
+                                LeaderboardShardService leaderboardShardService,
+                                GameStatsWriteBehindService gameStatsWriteBehindService) {
+        this.redisTemplate = redisTemplate;
+        this.redisGameStatsService = redisGameStatsService;
+        this.leaderboardShardService = leaderboardShardService;
+        this.gameStatsWriteBehindService = gameStatsWriteBehindService;
+        this.releaseLockScript = RedisScript.of(new ClassPathResource(RELEASE_LOCK_SCRIPT), Long.class);
+        gameStatsWriteBehindService.setFlushListener(this::acknowledge);
+    }
+
+    /**
+     * Replay pending changes of every shard
+     */
+    @Scheduled(fixedDelayString = "${game.guess.sync-interval-ms:200}")
+    public void sync() {
+        if (!redisGameStatsService.isEnabled()) {
+            return;
+        }
+        for (int shard = 0; shard < leaderboardShardService.getShardCount(); shard++) {
+            String streamKey = leaderboardShardService.statsChangesKey(shard);
+            try {
+                syncStream(streamKey);
+            } catch (Exception e) {
+                // The stream may have been dropped together with its group: recreate both on the next run.
+                // Entries delivered in this run may not have reached the buffer: read the pending ones again
+                groupsCreated.remove(streamKey);
+                streamsLeased.remove(streamKey);
+                log.error("Error replaying stats changes from {}: {}", streamKey, e.getMessage(), e);
+            }
+        }
+    }
+
+    private void syncStream(String streamKey) {
+        if (!ensureGroup(streamKey)) {
+            return;
+        }
+        boolean leased = streamsLeased.contains(streamKey);
+        if (!holdLease(streamKey + LOCK_SUFFIX)) {
+            streamsLeased.remove(streamKey);
+            return;
+        }
+        streamsLeased.add(streamKey);
+
+        // On taking a stream, entries delivered before but never acknowledged come first, then new ones.
+        // While the lease is held, delivered entries are this node's own, waiting in the write-behind buffer.
+        boolean readingPending = !leased;
+        for (int batch = 0; batch < MAX_BATCHES_PER_RUN; batch++) {
+            ReadOffset offset = readingPending ? ReadOffset.from("0") : ReadOffset.lastConsumed();
+            List<MapRecord<String, Object, Object>> records = readBatch(streamKey, offset);
+            if (records == null || records.isEmpty()) {
+                if (!readingPending) {
+                    return;
+                }
+                readingPending = false;
+                continue;
+            }
+            apply(streamKey, records);
+        }
+    }
+
+    /**
+     * Read up to one batch of the stream as the group's consumer
+     */
+    // StreamOperations.read takes generic varargs of offsets; only the one offset is passed
+    @SuppressWarnings("unchecked")
+    private List<MapRecord<String, Object, Object>> readBatch(String streamKey, ReadOffset offset) {
+        return redisTemplate.opsForStream().read(
+                Consumer.from(CONSUMER_GROUP, CONSUMER_NAME),
+                StreamReadOptions.empty().count(BATCH_SIZE),
+                StreamOffset.create(streamKey, offset));
+    }
+
+    /**
+     * Take or renew this node's lease on a stream
+     */
+    private boolean holdLease(String lockKey) {
+        if (Boolean.TRUE.equals(redisTemplate.opsForValue().setIfAbsent(lockKey, nodeToken, LEASE_TTL))) {
+            return true;
+        }
+        if (nodeToken.equals(redisTemplate.opsForValue().get(lockKey))) {
+            redisTemplate.expire(lockKey, LEASE_TTL);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Flush what this node buffered, then hand the streams over to the other nodes
+     */
+    @PreDestroy
+    public void shutdown() {
+        if (!redisGameStatsService.isEnabled()) {
+            return;
+        }
+        gameStatsWriteBehindService.flush();
+        streamsLeased.clear();
+        for (int shard = 0; shard < leaderboardShardService.getShardCount(); shard++) {
+            String lockKey = leaderboardShardService.statsChangesKey(shard) + LOCK_SUFFIX;
+            try {
+                redisTemplate.execute(releaseLockScript, Collections.singletonList(lockKey), nodeToken);
+            } catch (Exception e) {
+                log.error("Error releasing stats stream lease {}: {}", lockKey, e.getMessage(), e);
+            }
+        }
+    }
+
+    /**
+     * Hand the entries to the write-behind buffer in stream order
+     * They are acknowledged by {@link #acknowledge} once written
+     */
+    private void apply(String streamKey, List<MapRecord<String, Object, Object>> records) {
+        for (MapRecord<String, Object, Object> record : records) {
+            Map<Object, Object> values = record.getValue();
+            gameStatsWriteBehindService.submit(
+                    Long.valueOf(String.valueOf(values.get("user"))),
+                    Integer.parseInt(String.valueOf(values.get("turns"))),
+                    Integer.parseInt(String.valueOf(values.get("score"))),
+                    streamKey,
+                    record.getId());
+        }
+        log.debug("Replayed {} stats changes from {}", records.size(), streamKey);
+    }
+
+    /**
+     * Acknowledge and drop the entries whose changes a write-behind flush committed
+     */
+    private void acknowledge(Map<String, List<RecordId>> written) {
+        written.forEach((streamKey, ids) -> {
+            RecordId[] recordIds = ids.toArray(new RecordId[0]);
+            redisTemplate.opsForStream().acknowledge(streamKey, CONSUMER_GROUP, recordIds);
+            redisTemplate.opsForStream().delete(streamKey, recordIds);
+        });
+    }
+
+    /**
+     * Create the consumer group once the stream exists
+     *
+     * @return False if the stream does not exist yet
+     */
+    private boolean ensureGroup(String streamKey) {
+        if (groupsCreated.contains(streamKey)) {
+            return true;
+        }
+        if (!Boolean.TRUE.equals(redisTemplate.hasKey(streamKey))) {
+            return false;
+        }
+        try {
+            redisTemplate.opsForStream().createGroup(streamKey, ReadOffset.from("0"), CONSUMER_GROUP);
+        } catch (Exception e) {
+            String message = NestedExceptionUtils.getMostSpecificCause(e).getMessage();
+            if (message == null || !message.contains(ERROR_BUSY_GROUP)) {
+                throw e;
+            }
+        }
+        groupsCreated.add(streamKey);
+        return true;
+    }
+}
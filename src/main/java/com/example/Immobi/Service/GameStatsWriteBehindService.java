@@ -0,0 +1,182 @@
+package com.example.Immobi.Service;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.stream.RecordId;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * Write-behind buffer for player stats that are owned by Redis and only mirrored in the database
+ * Changes are collected per player in memory, so any number of changes to one player between two flushes
+ * cost a single row update. The buffer is flushed as one JDBC batch every flush interval, as soon as it
+ * holds max-pending players, and on graceful shutdown. Each change remembers the stream entries it covers,
+ * which are only handed to the flush listener once the batch holding it committed; entries of a change lost
+ * in a crash stay unacknowledged and are replayed.
+ * A batch updates its rows in score order, so batches flushed by several nodes at once lock the score
+ * histogram in the same order; a deadlock that still occurs is retried.
+ */
+@Service
+public class GameStatsWriteBehindService {
+
+    private static final Logger log = LoggerFactory.getLogger(GameStatsWriteBehindService.class);
+    private static final String UPDATE_STATS_SQL =
+            "UPDATE game_stats SET remaining_turns = ?, score = ? WHERE user_id = ?";
+
+    /**
+     * Last known turns and score of a player and the stream entries that value covers
+     */
+    private static final class PendingStats {
+        private final int remainingTurns;
+        private final int score;
+        private final Map<String, List<RecordId>> sources;
+
+        private PendingStats(int remainingTurns, int score, Map<String, List<RecordId>> sources) {
+            this.remainingTurns = remainingTurns;
+            this.score = score;
+            this.sources = sources;
+        }
+
+        /**
+         * This change, which replaces an older one, also covers the older one's entries
+         */
+        private PendingStats covering(PendingStats older) {
+            Map<String, List<RecordId>> merged = new HashMap<>(older.sources);
+            sources.forEach((streamKey, ids) -> merged.merge(streamKey, ids, GameStatsWriteBehindService::concat));
+            return new PendingStats(remainingTurns, score, merged);
+        }
+    }
+
+    private static final Comparator<Map.Entry<Long, PendingStats>> BY_SCORE_THEN_USER =
+            Comparator.comparingInt((Map.Entry<Long, PendingStats> change) -> change.getValue().score)
+                    .thenComparing(Map.Entry::getKey);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final TransactionRetryService transactionRetryService;
+    private final int maxPending;
+    private final Map<Long, PendingStats> pending = new ConcurrentHashMap<>();
+    private volatile Consumer<Map<String, List<RecordId>>> flushListener = sources -> { };
+
+    public GameStatsWriteBehindService(JdbcTemplate jdbcTemplate,
+                                       PlatformTransactionManager transactionManager,
+                                       TransactionRetryService transactionRetryService,
+                                       @Value("${game.stats.write-behind.max-pending:1000}") int maxPending) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionRetryService = transactionRetryService;
+        this.maxPending = maxPending;
+    }
+
+    /**
+     * Set who acknowledges the stream entries of written changes
+     */
+    public void setFlushListener(Consumer<Map<String, List<RecordId>>> flushListener) {
+        this.flushListener = flushListener;
+    }
+
+    /**
+     * Record a player's new turns and score, replacing any change not flushed yet
+     * Changes for one player must be submitted in order
+     *
+     * @param streamKey Stream the change was read from
+     * @param recordId Stream entry of the change, acknowledged once the change is written
+     */
+    public void submit(Long userId, int remainingTurns, int score, String streamKey, RecordId recordId) {
+        PendingStats change = new PendingStats(remainingTurns, score, Map.of(streamKey, List.of(recordId)));
+        pending.merge(userId, change, (older, newer) -> newer.covering(older));
+        if (pending.size() >= maxPending) {
+            flush();
+        }
+    }
+
+    public int getPendingCount() {
+        return pending.size();
+    }
+
+    /**
+     * Write every buffered player in one batched UPDATE, then hand the covered stream entries to the listener
+     * Changes whose write fails are put back, behind any newer change that arrived in the meantime
+     */
+    @Scheduled(fixedDelayString = "${game.stats.write-behind.flush-interval-ms:1000}")
+    public synchronized void flush() {
+        if (pending.isEmpty()) {
+            return;
+        }
+
+        List<Map.Entry<Long, PendingStats>> changes = new ArrayList<>(pending.size());
+        for (Long userId : new ArrayList<>(pending.keySet())) {
+            PendingStats change = pending.remove(userId);
+            if (change != null) {
+                changes.add(Map.entry(userId, change));
+            }
+        }
+        changes.sort(BY_SCORE_THEN_USER);
+
+        List<Long> userIds = new ArrayList<>(changes.size());
+        List<PendingStats> stats = new ArrayList<>(changes.size());
+        for (Map.Entry<Long, PendingStats> change : changes) {
+            userIds.add(change.getKey());
+            stats.add(change.getValue());
+        }
+
+        List<Object[]> batch = new ArrayList<>(userIds.size());
+        for (int i = 0; i < userIds.size(); i++) {
+            batch.add(new Object[] {stats.get(i).remainingTurns, stats.get(i).score, userIds.get(i)});
+        }
+
+        try {
+            transactionRetryService.execute("stats-flush",
+                    () -> transactionTemplate.execute(status -> jdbcTemplate.batchUpdate(UPDATE_STATS_SQL, batch)));
+        } catch (Exception e) {
+            for (int i = 0; i < userIds.size(); i++) {
+                pending.merge(userIds.get(i), stats.get(i), (newer, failed) -> newer.covering(failed));
+            }
+            log.error("Error flushing {} player stats: {}", userIds.size(), e.getMessage(), e);
+            return;
+        }
+
+        log.debug("Flushed stats of {} players", userIds.size());
+        Map<String, List<RecordId>> written = new HashMap<>();
+        for (PendingStats change : stats) {
+            change.sources.forEach((streamKey, ids) -> written.merge(streamKey, ids, GameStatsWriteBehindService::concat));
+        }
+        try {
+            flushListener.accept(written);
+        } catch (Exception e) {
+            // The entries stay pending in their streams and are replayed, writing the same values again
+            log.error("Error acknowledging flushed stats changes: {}", e.getMessage(), e);
+        }
+    }
+
+    private static List<RecordId> concat(List<RecordId> first, List<RecordId> second) {
+        List<RecordId> ids = new ArrayList<>(first.size() + second.size());
+        ids.addAll(first);
+        ids.addAll(second);
+        return ids;
+    }
+
+    /**
+     * Drain the buffer before the datasource goes away
+     */
+    @PreDestroy
+    public void shutdown() {
+        flush();
+        if (!pending.isEmpty()) {
+            log.warn("{} player stats could not be written on shutdown", pending.size());
+        }
+    }
+}
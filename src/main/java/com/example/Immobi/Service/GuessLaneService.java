@@ -0,0 +1,147 @@
+package com.example.Immobi.Service;
+
+import com.example.Immobi.Core.exception.BusinessException;
+import com.example.Immobi.Core.exception.ErrorCode;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Service running guesses on per-player single-writer lanes when game.guess.lanes.enabled=true
+ * A player always maps to the same lane (userId mod lane count), and each lane is one thread with a bounded
+ * queue. One player's guesses therefore run one after another without contending for the game_stats row,
+ * while different lanes run in parallel. Queued guesses hold neither a database connection nor a row lock;
+ * at most one connection per lane is in use. A full lane rejects the guess with 429.
+ */
+@Service
+public class GuessLaneService {
+
+    private static final Logger log = LoggerFactory.getLogger(GuessLaneService.class);
+
+    /**
+     * One single-threaded executor with its metrics
+     */
+    private static final class Lane {
+        private final ThreadPoolExecutor executor;
+        private final Timer waitTime;
+        private final Counter rejected;
+
+        private Lane(int index, int queueCapacity, MeterRegistry meterRegistry) {
+            this.executor = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                    new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+                        Thread thread = new Thread(runnable, "guess-lane-" + index);
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+            String lane = String.valueOf(index);
+            Gauge.builder("game.guess.lane.queue", executor, pool -> pool.getQueue().size())
+                    .tag("lane", lane)
+                    .register(meterRegistry);
+            this.waitTime = Timer.builder("game.guess.lane.wait").tag("lane", lane).register(meterRegistry);
+            this.rejected = Counter.builder("game.guess.lane.rejected").tag("lane", lane).register(meterRegistry);
+        }
+    }
+
+    private final boolean enabled;
+    private final long timeoutMs;
+    private final Lane[] lanes;
+
+    public GuessLaneService(MeterRegistry meterRegistry,
+                            @Value("${game.guess.lanes.enabled:false}") boolean enabled,
+                            @Value("${game.guess.lanes.count:8}") int laneCount,
+                            @Value("${game.guess.lanes.queue-capacity:32}") int queueCapacity,
+                            @Value("${game.guess.lanes.timeout-ms:5000}") long timeoutMs) {
+        if (enabled && (laneCount < 1 || queueCapacity < 1)) {
+            throw new IllegalArgumentException("game.guess.lanes.count and queue-capacity must be at least 1");
+        }
+        this.enabled = enabled;
+        this.timeoutMs = timeoutMs;
+        this.lanes = new Lane[enabled ? laneCount : 0];
+        for (int i = 0; i < lanes.length; i++) {
+            lanes[i] = new Lane(i, queueCapacity, meterRegistry);
+        }
+    }
+
+    /**
+     * Run a player's guess on the player's lane and wait for its result
+     * Runs on the calling thread when lanes are disabled. A guess still queued when the timeout expires is
+     * cancelled; one already running completes, but its result is not returned.
+     *
+     * @param userId Player the guess belongs to
+     * @param guess Guess processing, run inside the lane
+     * @return Result of the guess
+     */
+    public <T> T execute(Long userId, Supplier<T> guess) {
+        if (!enabled) {
+            return guess.get();
+        }
+
+        Lane lane = lanes[(int) Math.floorMod(userId, (long) lanes.length)];
+        long queuedAt = System.nanoTime();
+        Future<T> result;
+        try {
+            result = lane.executor.submit(() -> {
+                lane.waitTime.record(System.nanoTime() - queuedAt, TimeUnit.NANOSECONDS);
+                return guess.get();
+            });
+        } catch (RejectedExecutionException e) {
+            lane.rejected.increment();
+            throw new BusinessException(ErrorCode.CONCURRENT_REQUEST_ERROR, "Too many pending guesses, try again later");
+        }
+
+        try {
+            return result.get(timeoutMs, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            if (cause instanceof Error error) {
+                throw error;
+            }
+            throw new BusinessException(ErrorCode.INTERNAL_SERVER_ERROR, cause);
+        } catch (TimeoutException e) {
+            result.cancel(false);
+            throw new BusinessException(ErrorCode.REQUEST_TIMEOUT, "Guess could not be processed in time");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            result.cancel(false);
+            throw new BusinessException(ErrorCode.REQUEST_TIMEOUT, e);
+        }
+    }
+
+    /**
+     * Let queued guesses finish before the datasource goes away
+     */
+    @PreDestroy
+    public void shutdown() {
+        for (Lane lane : lanes) {
+            lane.executor.shutdown();
+        }
+        try {
+            for (Lane lane : lanes) {
+                if (!lane.executor.awaitTermination(timeoutMs, TimeUnit.MILLISECONDS)) {
+                    log.warn("Guess lane did not drain on shutdown, {} guesses dropped",
+                            lane.executor.shutdownNow().size());
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,209 @@
+package com.example.Immobi.Service;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Service tracking whether the Redis leaderboard is usable
+ * Reads consult an in-JVM state instead of asking Redis on every call; rebuilds are single-flight
+ * within the JVM (one in-flight rebuild that other callers wait for) and across nodes (Redis lock)
+ */
+@Service
+public class LeaderboardLifecycleService {
+
+    /**
+     * Lifecycle of the leaderboard as seen by this node
+     */
+    public enum State {
+        STALE,
+        REBUILDING,
+        READY
+    }
+
+    /**
+     * Outcome of a synchronous rebuild
+     */
+    public enum RebuildResult {
+        REBUILT,
+        RUNNING_ELSEWHERE,
+        FAILED
+    }
+
+    private static final Logger log = LoggerFactory.getLogger(LeaderboardLifecycleService.class);
+    private static final String REBUILD_LOCK_KEY = "game:leaderboard:rebuild-lock";
+    private static final String RELEASE_LOCK_SCRIPT = "scripts/lock/release.lua";
+
+    private final StringRedisTemplate redisTemplate;
+    private final LeaderboardRebuildService leaderboardRebuildService;
+    private final LeaderboardNearCacheService leaderboardNearCacheService;
+    private final LeaderboardShardService leaderboardShardService;
+    private final RedisScript<Long> releaseLockScript;
+    private final AtomicReference<State> state = new AtomicReference<>(State.STALE);
+    private final AtomicReference<CompletableFuture<RebuildResult>> inFlight = new AtomicReference<>();
+    private final ExecutorService rebuildExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "leaderboard-rebuild");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final Duration lockTtl;
+    private final Duration retryBackoff;
+    private volatile long nextAttemptAtMillis;
+
+    public LeaderboardLifecycleService(StringRedisTemplate redisTemplate,
+                                       LeaderboardRebuildService leaderboardRebuildService,
+                                       LeaderboardNearCacheService leaderboardNearCacheService,
+                                       LeaderboardShardService leaderboardShardService,
+                                       @Value("${leaderboard.rebuild.lock-ttl-ms:600000}") long lockTtlMillis,
+                                       @Value("${leaderboard.rebuild.retry-backoff-ms:5000}") long retryBackoffMillis) {
+        this.redisTemplate = redisTemplate;
+        this.leaderboardRebuildService = leaderboardRebuildService;
+        this.leaderboardNearCacheService = leaderboardNearCacheService;
+        this.leaderboardShardService = leaderboardShardService;
+        this.releaseLockScript = RedisScript.of(new ClassPathResource(RELEASE_LOCK_SCRIPT), Long.class);
+        this.lockTtl = Duration.ofMillis(lockTtlMillis);
+        this.retryBackoff = Duration.ofMillis(retryBackoffMillis);
+    }
+
+    public State getState() {
+        return state.get();
+    }
+
+    /**
+     * Make sure the leaderboard exists, rebuilding it synchronously if needed
+     * Used at startup, before any request is served
+     */
+    public void initialize() {
+        if (leaderboardExists()) {
+            state.set(State.READY);
+            return;
+        }
+        log.info("Initializing leaderboard in Redis from database");
+        rebuild();
+    }
+
+    /**
+     * Cheap guard for the read path: no Redis call while the leaderboard is READY
+     * Otherwise schedules a background rebuild; readers keep seeing the current board until it is swapped in
+     */
+    public void ensureReady() {
+        if (state.get() == State.READY) {
+            return;
+        }
+        if (System.currentTimeMillis() < nextAttemptAtMillis) {
+            return;
+        }
+        if (state.compareAndSet(State.STALE, State.REBUILDING)) {
+            rebuildExecutor.execute(this::rebuildOnce);
+        }
+    }
+
+    /**
+     * Rebuild the leaderboard now and wait for it
+     * If this node is already rebuilding, waits for that rebuild instead of starting a second one;
+     * if another node already holds the rebuild lock, its rebuild is trusted instead
+     *
+     * @return Whether the leaderboard was rebuilt, left to another node's rebuild, or could not be rebuilt
+     */
+    public RebuildResult rebuild() {
+        return rebuildOnce();
+    }
+
+    /**
+     * Mark the leaderboard as needing a rebuild on the next read
+     */
+    public void markStale() {
+        if (state.compareAndSet(State.READY, State.STALE)) {
+            log.warn("Leaderboard marked stale");
+        }
+    }
+
+    /**
+     * Periodic detection of key loss (expiry, eviction, FLUSHDB)
+     */
+    @Scheduled(fixedDelayString = "${leaderboard.lifecycle.check-interval-ms:30000}")
+    public void detectKeyLoss() {
+        try {
+            if (state.get() == State.READY && !leaderboardExists()) {
+                markStale();
+                ensureReady();
+            }
+        } catch (Exception e) {
+            log.error("Error checking leaderboard presence: {}", e.getMessage(), e);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        rebuildExecutor.shutdownNow();
+    }
+
+    /**
+     * Run a rebuild unless one is in flight on this node, then return once the running rebuild has finished
+     */
+    private RebuildResult rebuildOnce() {
+        CompletableFuture<RebuildResult> rebuild = new CompletableFuture<>();
+        CompletableFuture<RebuildResult> running = inFlight.compareAndExchange(null, rebuild);
+        if (running != null) {
+            return running.join();
+        }
+        RebuildResult result = RebuildResult.FAILED;
+        try {
+            state.set(State.REBUILDING);
+            result = rebuildUnderLock();
+            return result;
+        } finally {
+            inFlight.set(null);
+            rebuild.complete(result);
+        }
+    }
+
+    private RebuildResult rebuildUnderLock() {
+        String token = UUID.randomUUID().toString();
+        try {
+            Boolean acquired = redisTemplate.opsForValue().setIfAbsent(REBUILD_LOCK_KEY, token, lockTtl);
+            if (!Boolean.TRUE.equals(acquired)) {
+                log.info("Leaderboard rebuild already running on another node");
+                backOff();
+                state.set(leaderboardExists() ? State.READY : State.STALE);
+                return RebuildResult.RUNNING_ELSEWHERE;
+            }
+            try {
+                leaderboardRebuildService.rebuild();
+                state.set(State.READY);
+                leaderboardNearCacheService.publishChange();
+                return RebuildResult.REBUILT;
+            } finally {
+                redisTemplate.execute(releaseLockScript, Collections.singletonList(REBUILD_LOCK_KEY), token);
+            }
+        } catch (Exception e) {
+            log.error("Error rebuilding leaderboard: {}", e.getMessage(), e);
+            backOff();
+            state.set(State.STALE);
+            return RebuildResult.FAILED;
+        }
+    }
+
+    private void backOff() {
+        nextAttemptAtMillis = System.currentTimeMillis() + retryBackoff.toMillis();
+    }
+
+    private boolean leaderboardExists() {
+        return leaderboardShardService.exists();
+    }
+}
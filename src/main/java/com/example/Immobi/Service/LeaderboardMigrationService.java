@@ -0,0 +1,217 @@
+package com.example.Immobi.Service;
+
+import com.example.Immobi.Dto.game.UserRankData;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisOperations;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.ScanOptions;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ZSetOperations;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One-shot migration of the leaderboard from JSON "userId:username" members
+ * to compact user ID members with usernames stored in a separate hash
+ * A format marker records a board known to be compact, so later startups skip the check.
+ */
+@Service
+public class LeaderboardMigrationService {
+
+    private static final Logger log = LoggerFactory.getLogger(LeaderboardMigrationService.class);
+    private static final String LEGACY_MEMBER_INDEX_KEY = "game:leaderboard:members";
+    private static final String FORMAT_KEY = "game:leaderboard:format";
+    private static final String COMPACT_FORMAT = "compact";
+    private static final String MIGRATION_SUFFIX = ":migrating";
+    private static final String LEGACY_VALUE_DELIMITER = ":";
+    private static final int SCAN_BATCH_SIZE = 1000;
+    private static final long PLAYERS_PER_REPORT = 1_000_000L;
+
+    private final RedisTemplate<String, Object> redisTemplate;
+    private final StringRedisTemplate stringRedisTemplate;
+
+    public LeaderboardMigrationService(RedisTemplate<String, Object> redisTemplate,
+                                       StringRedisTemplate stringRedisTemplate) {
+        this.redisTemplate = redisTemplate;
+        this.stringRedisTemplate = stringRedisTemplate;
+    }
+
+    /**
+     * Convert a legacy leaderboard in place, if one exists
+     * The compact copy is built under temporary keys and renamed over the live ones in a single
+     * transaction, so readers see either the old or the new board. Scores written by other nodes
+     * while the copy is built are overwritten and corrected by the player's next score change.
+     */
+    public void migrateLegacyFormat() {
+        if (!isLegacyFormat()) {
+            stringRedisTemplate.delete(LEGACY_MEMBER_INDEX_KEY);
+            return;
+        }
+
+        String leaderboardKey = LeaderboardService.LEADERBOARD_KEY;
+        String usernamesKey = LeaderboardService.USERNAMES_KEY;
+        String migratingLeaderboardKey = leaderboardKey + MIGRATION_SUFFIX;
+        String migratingUsernamesKey = usernamesKey + MIGRATION_SUFFIX;
+
+        log.info("Migrating leaderboard to compact member encoding");
+        long legacyBytes = memoryUsage(leaderboardKey) + memoryUsage(LEGACY_MEMBER_INDEX_KEY);
+        stringRedisTemplate.delete(List.of(migratingLeaderboardKey, migratingUsernamesKey));
+
+        long migrated = 0;
+        Set<ZSetOperations.TypedTuple<String>> scores = new HashSet<>();
+        Map<String, String> usernames = new HashMap<>();
+        List<String> compactUserIds = new ArrayList<>();
+        ScanOptions options = ScanOptions.scanOptions().count(SCAN_BATCH_SIZE).build();
+
+        try (Cursor<ZSetOperations.TypedTuple<Object>> cursor = redisTemplate.opsForZSet().scan(leaderboardKey, options)) {
+            while (cursor.hasNext()) {
+                ZSetOperations.TypedTuple<Object> tuple = cursor.next();
+                String member = String.valueOf(tuple.getValue());
+                UserRankData userRankData = decodeLegacyValue(member);
+                if (userRankData.getUserId() == null || tuple.getScore() == null) {
+                    continue;
+                }
+
+                String userId = String.valueOf(userRankData.getUserId());
+                scores.add(ZSetOperations.TypedTuple.of(userId, tuple.getScore()));
+                if (member.contains(LEGACY_VALUE_DELIMITER)) {
+                    usernames.put(userId, userRankData.getUsername());
+                } else {
+                    // Written in the compact format by a newer node: its username is already in the hash
+                    compactUserIds.add(userId);
+                }
+                migrated++;
+
+                if (scores.size() >= SCAN_BATCH_SIZE) {
+                    writeBatch(migratingLeaderboardKey, migratingUsernamesKey, scores, usernames, compactUserIds);
+                }
+            }
+        }
+        writeBatch(migratingLeaderboardKey, migratingUsernamesKey, scores, usernames, compactUserIds);
+
+        if (migrated == 0) {
+            log.warn("Legacy leaderboard had no decodable members, dropping it");
+            stringRedisTemplate.delete(List.of(leaderboardKey, LEGACY_MEMBER_INDEX_KEY));
+            return;
+        }
+
+        long compactBytes = memoryUsage(migratingLeaderboardKey) + memoryUsage(migratingUsernamesKey);
+        swapIn(migratingLeaderboardKey, migratingUsernamesKey);
+
+        long savedPerMillion = (legacyBytes - compactBytes) * PLAYERS_PER_REPORT / migrated;
+        log.info("Migrated {} leaderboard players: {} bytes before, {} bytes after, ~{} bytes saved per million players",
+                migrated, legacyBytes, compactBytes, savedPerMillion);
+    }
+
+    /**
+     * Whether any member of the board is legacy, not only the first one: nodes writing compact members
+     * may have added to a legacy board during a rolling upgrade. Legacy members always hold the delimiter,
+     * so a matching scan finds them wherever they sit. A board found compact is marked so.
+     */
+    private boolean isLegacyFormat() {
+        if (COMPACT_FORMAT.equals(stringRedisTemplate.opsForValue().get(FORMAT_KEY))) {
+            return false;
+        }
+        if (!Boolean.TRUE.equals(stringRedisTemplate.hasKey(LeaderboardService.LEADERBOARD_KEY))) {
+            return false;
+        }
+        ScanOptions options = ScanOptions.scanOptions()
+                .match("*" + LEGACY_VALUE_DELIMITER + "*")
+                .count(SCAN_BATCH_SIZE)
+                .build();
+        try (Cursor<ZSetOperations.TypedTuple<String>> cursor =
+                     stringRedisTemplate.opsForZSet().scan(LeaderboardService.LEADERBOARD_KEY, options)) {
+            if (cursor.hasNext()) {
+                return true;
+            }
+        }
+        stringRedisTemplate.opsForValue().set(FORMAT_KEY, COMPACT_FORMAT);
+        return false;
+    }
+
+    private void writeBatch(String leaderboardKey, String usernamesKey,
+                            Set<ZSetOperations.TypedTuple<String>> scores, Map<String, String> usernames,
+                            List<String> compactUserIds) {
+        if (scores.isEmpty()) {
+            return;
+        }
+        if (!compactUserIds.isEmpty()) {
+            List<Object> compactUsernames = stringRedisTemplate.opsForHash()
+                    .multiGet(LeaderboardService.USERNAMES_KEY, new ArrayList<>(compactUserIds));
+            for (int i = 0; i < compactUserIds.size(); i++) {
+                Object username = compactUsernames.get(i);
+                usernames.putIfAbsent(compactUserIds.get(i), username != null ? username.toString() : "Unknown");
+            }
+        }
+        stringRedisTemplate.opsForZSet().add(leaderboardKey, scores);
+        stringRedisTemplate.opsForHash().putAll(usernamesKey, usernames);
+        scores.clear();
+        usernames.clear();
+        compactUserIds.clear();
+    }
+
+    /**
+     * Rename the migrated keys over the live ones and drop the legacy index atomically
+     */
+    private void swapIn(String migratingLeaderboardKey, String migratingUsernamesKey) {
+        stringRedisTemplate.execute(new SessionCallback<List<Object>>() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public <K, V> List<Object> execute(RedisOperations<K, V> operations) throws DataAccessException {
+                RedisOperations<String, String> ops = (RedisOperations<String, String>) operations;
+                ops.multi();
+                ops.rename(migratingLeaderboardKey, LeaderboardService.LEADERBOARD_KEY);
+                ops.rename(migratingUsernamesKey, LeaderboardService.USERNAMES_KEY);
+                ops.delete(LEGACY_MEMBER_INDEX_KEY);
+                ops.opsForValue().set(FORMAT_KEY, COMPACT_FORMAT);
+                ops.expire(LeaderboardService.LEADERBOARD_KEY, LeaderboardService.DEFAULT_CACHE_DAYS, TimeUnit.DAYS);
+                ops.expire(LeaderboardService.USERNAMES_KEY, LeaderboardService.DEFAULT_CACHE_DAYS, TimeUnit.DAYS);
+                return ops.exec();
+            }
+        });
+    }
+
+    /**
+     * Exact memory footprint of a key in bytes (MEMORY USAGE with full sampling), 0 if absent
+     */
+    private long memoryUsage(String key) {
+        Object usage = stringRedisTemplate.execute((RedisCallback<Object>) connection -> connection.execute(
+                "MEMORY",
+                "USAGE".getBytes(StandardCharsets.UTF_8),
+                key.getBytes(StandardCharsets.UTF_8),
+                "SAMPLES".getBytes(StandardCharsets.UTF_8),
+                "0".getBytes(StandardCharsets.UTF_8)));
+        return usage instanceof Number ? ((Number) usage).longValue() : 0L;
+    }
+
+    private UserRankData decodeLegacyValue(String value) {
+        String[] parts = value.split(LEGACY_VALUE_DELIMITER, 2);
+        Long userId = null;
+        String username = "Unknown";
+
+        try {
+            userId = Long.valueOf(parts[0]);
+        } catch (NumberFormatException e) {
+            log.error("Error parsing user ID from legacy member {}: {}", value, e.getMessage());
+        }
+
+        if (parts.length >= 2) {
+            username = parts[1];
+        }
+
+        return new UserRankData(userId, username);
+    }
+}
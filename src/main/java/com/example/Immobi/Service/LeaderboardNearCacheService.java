@@ -0,0 +1,171 @@
+package com.example.Immobi.Service;
+
+import com.example.Immobi.Dto.player.LeaderboardEntryDto;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Per-node in-memory snapshot of the top K leaderboard entries
+ * Reads are served from an immutable list without a network hop. The snapshot is reloaded when a
+ * score at or above the K-th score changes (on any node, via Redis pub/sub) or when it is older than
+ * the configured maximum staleness, which bounds staleness even if a message is lost.
+ */
+@Service
+public class LeaderboardNearCacheService implements MessageListener {
+
+    public static final String CHANGES_CHANNEL = "game:leaderboard:changes";
+
+    private static final Logger log = LoggerFactory.getLogger(LeaderboardNearCacheService.class);
+
+    /**
+     * Immutable view of the top K entries at a point in time
+     * The version only moves forward, and only when the entries actually changed
+     */
+    public static final class Snapshot {
+        private final List<LeaderboardEntryDto> entries;
+        private final long version;
+        private final int lowestScore;
+        private final long loadedAtMillis;
+
+        private Snapshot(List<LeaderboardEntryDto> entries, long version, long loadedAtMillis) {
+            this.entries = List.copyOf(entries);
+            this.version = version;
+            this.lowestScore = entries.isEmpty() ? Integer.MIN_VALUE : entries.get(entries.size() - 1).getScore();
+            this.loadedAtMillis = loadedAtMillis;
+        }
+
+        public List<LeaderboardEntryDto> getEntries() {
+            return entries;
+        }
+
+        public long getVersion() {
+            return version;
+        }
+
+        /**
+         * First entries of the snapshot, without copying
+         */
+        public List<LeaderboardEntryDto> getTop(int size) {
+            return size >= entries.size() ? entries : entries.subList(0, size);
+        }
+    }
+
+    private final StringRedisTemplate redisTemplate;
+    private final int capacity;
+    private final long maxStalenessMillis;
+    private final Counter hits;
+    private final Counter misses;
+
+    private volatile Snapshot snapshot;
+    private volatile boolean dirty = true;
+
+    public LeaderboardNearCacheService(StringRedisTemplate redisTemplate,
+                                       RedisMessageListenerContainer listenerContainer,
+                                       MeterRegistry meterRegistry,
+                                       @Value("${leaderboard.near-cache.size:100}") int capacity,
+                                       @Value("${leaderboard.near-cache.max-staleness-ms:2000}") long maxStalenessMillis) {
+        this.redisTemplate = redisTemplate;
+        this.capacity = capacity;
+        this.maxStalenessMillis = maxStalenessMillis;
+        this.hits = Counter.builder("leaderboard.near_cache.requests").tag("result", "hit").register(meterRegistry);
+        this.misses = Counter.builder("leaderboard.near_cache.requests").tag("result", "miss").register(meterRegistry);
+        Gauge.builder("leaderboard.near_cache.staleness", this, LeaderboardNearCacheService::getStalenessMillis)
+                .description("Age of the top-K snapshot served by this node in milliseconds")
+                .baseUnit("milliseconds")
+                .register(meterRegistry);
+        listenerContainer.addMessageListener(this, new ChannelTopic(CHANGES_CHANNEL));
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Get the current snapshot, reloading it through the loader when it is dirty or too old
+     *
+     * @param loader Reads the top {@link #getCapacity()} entries from Redis
+     */
+    public Snapshot getSnapshot(Supplier<List<LeaderboardEntryDto>> loader) {
+        Snapshot current = snapshot;
+        if (current == null || dirty || isExpired(current)) {
+            misses.increment();
+            return reload(loader);
+        }
+        hits.increment();
+        return current;
+    }
+
+    /**
+     * Called after a score was written; notifies all nodes when the change can affect the top K
+     */
+    public void onScoreChanged(int score) {
+        Snapshot current = snapshot;
+        if (current != null && current.entries.size() >= capacity && score < current.lowestScore) {
+            return;
+        }
+        publishChange();
+    }
+
+    /**
+     * Drop the snapshot on every node, e.g. after the leaderboard was rebuilt
+     */
+    public void publishChange() {
+        dirty = true;
+        try {
+            redisTemplate.convertAndSend(CHANGES_CHANNEL, "changed");
+        } catch (Exception e) {
+            log.error("Error publishing leaderboard change: {}", e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        dirty = true;
+    }
+
+    public long getStalenessMillis() {
+        Snapshot current = snapshot;
+        return current == null ? 0 : System.currentTimeMillis() - current.loadedAtMillis;
+    }
+
+    private boolean isExpired(Snapshot current) {
+        return System.currentTimeMillis() - current.loadedAtMillis > maxStalenessMillis;
+    }
+
+    /**
+     * Single-flight reload: concurrent readers wait for one load instead of all hitting Redis
+     */
+    private synchronized Snapshot reload(Supplier<List<LeaderboardEntryDto>> loader) {
+        Snapshot current = snapshot;
+        if (current != null && !dirty && !isExpired(current)) {
+            return current;
+        }
+        // Clear the flag before loading so a change published during the load triggers another reload
+        dirty = false;
+        List<LeaderboardEntryDto> entries;
+        try {
+            entries = loader.get();
+        } catch (RuntimeException e) {
+            dirty = true;
+            throw e;
+        }
+        long version = current == null ? 1 : current.version + (current.entries.equals(entries) ? 0 : 1);
+        Snapshot loaded = new Snapshot(entries, version, System.currentTimeMillis());
+        snapshot = loaded;
+        log.debug("Reloaded leaderboard near-cache with {} entries", loaded.entries.size());
+        return loaded;
+    }
+}
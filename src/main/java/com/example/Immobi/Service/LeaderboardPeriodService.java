@@ -0,0 +1,275 @@
+package com.example.Immobi.Service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.redis.connection.ReturnType;
+import org.springframework.data.redis.connection.StringRedisConnection;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.time.DayOfWeek;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
+import java.time.temporal.IsoFields;
+import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Service for the time-windowed leaderboards (daily, weekly, season)
+ * Each period has its own sorted set, named after the period and expired some time after the period ends.
+ * Multi-period views are built with ZUNIONSTORE once per period boundary and kept current by the write script.
+ * Points relayed from the outbox count towards the periods they were won in, and once per outbox event.
+ */
+@Service
+public class LeaderboardPeriodService {
+
+    /**
+     * Leaderboards available next to the all-time one
+     */
+    public enum Period {
+        DAILY("daily"),
+        WEEKLY("weekly"),
+        SEASON("season"),
+        LAST_7_DAYS("last-7-days"),
+        LAST_4_WEEKS("last-4-weeks");
+
+        private final String path;
+
+        Period(String path) {
+            this.path = path;
+        }
+
+        public String getPath() {
+            return path;
+        }
+
+        /**
+         * @return The period with the given path name, or null if there is none
+         */
+        public static Period fromPath(String path) {
+            return Arrays.stream(values())
+                    .filter(period -> period.path.equalsIgnoreCase(path))
+                    .findFirst()
+                    .orElse(null);
+        }
+    }
+
+    private static final Logger log = LoggerFactory.getLogger(LeaderboardPeriodService.class);
+    private static final String PERIOD_SCRIPT = "scripts/leaderboard/period.lua";
+    private static final String KEY_PREFIX = LeaderboardService.LEADERBOARD_KEY + ":";
+    private static final String VIEW_KEY_PREFIX = LeaderboardService.LEADERBOARD_KEY + ":view:";
+    private static final int ROLLING_DAYS = 7;
+    private static final int ROLLING_WEEKS = 4;
+    private static final int PERIODS_PER_WRITE = 3;
+    private static final int PERIOD_SCRIPT_ARGS = 7 + PERIODS_PER_WRITE;
+    /**
+     * How long applied outbox events are remembered; far longer than a relayed batch can take to be replayed
+     */
+    private static final long APPLIED_RETENTION_SECONDS = Duration.ofDays(1).toSeconds();
+
+    private final StringRedisTemplate redisTemplate;
+    private final RedisScript<Long> periodScript;
+    private final Clock clock;
+    private final ZoneId zone;
+    private final LocalDate seasonStart;
+    private final int seasonLengthDays;
+
+    @Autowired
+    public LeaderboardPeriodService(StringRedisTemplate redisTemplate,
+                                    @Value("${leaderboard.period.zone:UTC}") String zone,
+                                    @Value("${leaderboard.season.start:2026-01-01}") String seasonStart,
+                                    @Value("${leaderboard.season.length-days:28}") int seasonLengthDays) {
+        this(redisTemplate, Clock.system(ZoneId.of(zone)), seasonStart, seasonLengthDays);
+    }
+
+    /**
+     * @param clock Clock deciding the current periods, in the leaderboard's zone
+     */
+    LeaderboardPeriodService(StringRedisTemplate redisTemplate, Clock clock, String seasonStart, int seasonLengthDays) {
+        this.redisTemplate = redisTemplate;
+        this.periodScript = RedisScript.of(new ClassPathResource(PERIOD_SCRIPT), Long.class);
+        this.clock = clock;
+        this.zone = clock.getZone();
+        this.seasonStart = LocalDate.parse(seasonStart);
+        this.seasonLengthDays = seasonLengthDays;
+    }
+
+    /**
+     * Add points to the current daily, weekly and season leaderboards in one round trip
+     * Period keys expire once no rolling view can read them anymore
+     */
+    public void addPoints(Long userId, int points) {
+        addPoints(userId, points, null, clock.instant());
+    }
+
+    /**
+     * Add the points of an outbox event to the leaderboards of the periods it happened in
+     *
+     * @param eventId Outbox event id, counted once however often it is applied; null for points not from the outbox
+     * @param at Time the points were won at
+     */
+    void addPoints(Long userId, int points, Long eventId, Instant at) {
+        List<String> keysAndArgs = keysAndArgs(userId, points, eventId, at);
+        int keys = keyCount(keysAndArgs);
+        redisTemplate.execute(periodScript, keysAndArgs.subList(0, keys),
+                keysAndArgs.subList(keys, keysAndArgs.size()).toArray());
+    }
+
+    /**
+     * Queue {@link #addPoints(Long, int, Long, Instant)} on a pipelined connection that {@link #loadScript} was called on
+     */
+    public void addPoints(StringRedisConnection connection, Long userId, int points, Long eventId, Instant at) {
+        List<String> keysAndArgs = keysAndArgs(userId, points, eventId, at);
+        connection.evalSha(periodScript.getSha1(), ReturnType.INTEGER, keyCount(keysAndArgs),
+                keysAndArgs.toArray(new String[0]));
+    }
+
+    /**
+     * Load the period script on a connection, ahead of pipelined calls
+     */
+    public void loadScript(StringRedisConnection connection) {
+        connection.scriptingCommands().scriptLoad(periodScript.getScriptAsString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Keys then arguments of the period script
+     * Points count towards the periods of the day they were won on. The views are those read today, and only
+     * those whose window still covers that day.
+     */
+    private List<String> keysAndArgs(Long userId, int points, Long eventId, Instant at) {
+        LocalDate day = LocalDate.ofInstant(at, zone);
+        LocalDate weekStart = day.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+        long season = seasonNumber(day);
+        LocalDate today = today();
+        long now = clock.instant().getEpochSecond();
+
+        List<String> keysAndArgs = new ArrayList<>();
+        keysAndArgs.add(appliedKey(userId));
+        keysAndArgs.add(dailyKey(day));
+        keysAndArgs.add(weeklyKey(day));
+        keysAndArgs.add(seasonKey(season));
+        if (day.isAfter(today.minusDays(ROLLING_DAYS))) {
+            keysAndArgs.add(viewKey(Period.LAST_7_DAYS, today));
+        }
+        if (weekStart.isAfter(today.minusWeeks(ROLLING_WEEKS))) {
+            keysAndArgs.add(viewKey(Period.LAST_4_WEEKS, today));
+        }
+        keysAndArgs.add(String.valueOf(userId));
+        keysAndArgs.add(String.valueOf(points));
+        keysAndArgs.add(String.valueOf(PERIODS_PER_WRITE));
+        keysAndArgs.add(eventId == null ? "" : String.valueOf(eventId));
+        keysAndArgs.add(String.valueOf(at.getEpochSecond()));
+        keysAndArgs.add(String.valueOf(now - APPLIED_RETENTION_SECONDS));
+        keysAndArgs.add(String.valueOf(now + APPLIED_RETENTION_SECONDS));
+        keysAndArgs.add(String.valueOf(expireAt(day.plusDays(1).plusDays(ROLLING_DAYS))));
+        keysAndArgs.add(String.valueOf(expireAt(weekStart.plusWeeks(1).plusWeeks(ROLLING_WEEKS))));
+        keysAndArgs.add(String.valueOf(expireAt(seasonStartOf(season + 2))));
+        return keysAndArgs;
+    }
+
+    private static int keyCount(List<String> keysAndArgs) {
+        return keysAndArgs.size() - PERIOD_SCRIPT_ARGS;
+    }
+
+    /**
+     * Get the sorted set holding the given leaderboard right now
+     * A multi-period view is materialized by the first read after each period boundary
+     */
+    public String resolveKey(Period period) {
+        LocalDate today = today();
+        switch (period) {
+            case DAILY:
+                return dailyKey(today);
+            case WEEKLY:
+                return weeklyKey(today);
+            case SEASON:
+                return seasonKey(seasonNumber(today));
+            default:
+                return materializeView(period, today);
+        }
+    }
+
+    private String materializeView(Period period, LocalDate today) {
+        String viewKey = viewKey(period, today);
+        if (Boolean.TRUE.equals(redisTemplate.hasKey(viewKey))) {
+            return viewKey;
+        }
+
+        List<String> sourceKeys = new ArrayList<>();
+        LocalDate expiresOn;
+        if (period == Period.LAST_7_DAYS) {
+            for (int i = 0; i < ROLLING_DAYS; i++) {
+                sourceKeys.add(dailyKey(today.minusDays(i)));
+            }
+            expiresOn = today.plusDays(2);
+        } else {
+            for (int i = 0; i < ROLLING_WEEKS; i++) {
+                sourceKeys.add(weeklyKey(today.minusWeeks(i)));
+            }
+            expiresOn = today.with(TemporalAdjusters.next(DayOfWeek.MONDAY)).plusDays(1);
+        }
+
+        // ZUNIONSTORE is atomic: a concurrent write lands either in the sources before the union or in the view after it
+        redisTemplate.opsForZSet().unionAndStore(sourceKeys.get(0), sourceKeys.subList(1, sourceKeys.size()), viewKey);
+        redisTemplate.expireAt(viewKey, Instant.ofEpochSecond(expireAt(expiresOn)));
+        log.info("Materialized {} leaderboard view {}", period.getPath(), viewKey);
+        return viewKey;
+    }
+
+    private String appliedKey(Long userId) {
+        return KEY_PREFIX + "applied:" + userId;
+    }
+
+    private String dailyKey(LocalDate date) {
+        return KEY_PREFIX + "daily:" + date;
+    }
+
+    private String weeklyKey(LocalDate date) {
+        return KEY_PREFIX + "weekly:" + weekId(date);
+    }
+
+    private String seasonKey(long season) {
+        return KEY_PREFIX + "season:" + season;
+    }
+
+    /**
+     * Views are named after the boundary they were built for: daily views per day, weekly views per ISO week
+     */
+    private String viewKey(Period period, LocalDate today) {
+        String boundary = period == Period.LAST_7_DAYS ? today.toString() : weekId(today);
+        return VIEW_KEY_PREFIX + period.getPath() + ":" + boundary;
+    }
+
+    private static String weekId(LocalDate date) {
+        return String.format(Locale.ROOT, "%d-W%02d",
+                date.get(IsoFields.WEEK_BASED_YEAR), date.get(IsoFields.WEEK_OF_WEEK_BASED_YEAR));
+    }
+
+    private long seasonNumber(LocalDate date) {
+        return Math.floorDiv(ChronoUnit.DAYS.between(seasonStart, date), seasonLengthDays) + 1;
+    }
+
+    private LocalDate seasonStartOf(long season) {
+        return seasonStart.plusDays((season - 1) * seasonLengthDays);
+    }
+
+    private LocalDate today() {
+        return LocalDate.now(clock);
+    }
+
+    private long expireAt(LocalDate date) {
+        return date.atStartOfDay(zone).toEpochSecond();
+    }
+}
@@ -0,0 +1,59 @@
+package com.example.Immobi.Service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Service;
+
+import java.util.Collections;
+
+/**
+ * Service for rank lookups on the leaderboard sorted set
+ * Every lookup costs a bounded number of O(log N) Redis operations, independent of player count
+ */
+@Service
+public class LeaderboardRankService {
+
+    private static final Logger log = LoggerFactory.getLogger(LeaderboardRankService.class);
+    private static final String RANK_SCRIPT = "scripts/leaderboard/rank.lua";
+    private static final long NOT_RANKED = -1L;
+
+    private final StringRedisTemplate redisTemplate;
+    private final RedisScript<Long> rankScript;
+
+    public LeaderboardRankService(StringRedisTemplate redisTemplate) {
+        this.redisTemplate = redisTemplate;
+        this.rankScript = RedisScript.of(new ClassPathResource(RANK_SCRIPT), Long.class);
+    }
+
+    /**
+     * Get the rank of a player in one round trip (ZSCORE + ZCOUNT inside a script)
+     * Players with the same score share a rank, the next score skips the tied positions
+     *
+     * @param leaderboardKey Sorted set holding the leaderboard, keyed by user ID
+     * @param userId The player
+     * @return 1-based rank or null if the player is not on the leaderboard
+     */
+    public Integer getRank(String leaderboardKey, Long userId) {
+        Long rank = redisTemplate.execute(rankScript, Collections.singletonList(leaderboardKey), String.valueOf(userId));
+        if (rank == null || rank == NOT_RANKED) {
+            log.debug("User ID {} not found in {}", userId, leaderboardKey);
+            return null;
+        }
+        return rank.intValue();
+    }
+
+    /**
+     * Get the rank a given score holds on the leaderboard
+     *
+     * @param leaderboardKey Sorted set holding the leaderboard
+     * @param score The score to rank
+     * @return 1-based rank, i.e. one more than the number of players with a strictly higher score
+     */
+    public int getRankForScore(String leaderboardKey, double score) {
+        Long higher = redisTemplate.opsForZSet().count(leaderboardKey, Math.nextUp(score), Double.POSITIVE_INFINITY);
+        return (higher != null ? higher.intValue() : 0) + 1;
+    }
+}
@@ -0,0 +1,167 @@
+package com.example.Immobi.Service;
+
+import com.example.Immobi.Repository.GameStatsRepository;
+import com.example.Immobi.Repository.projection.LeaderboardRow;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.redis.connection.RedisZSetCommands;
+import org.springframework.data.redis.connection.zset.DefaultTuple;
+import org.springframework.data.redis.connection.zset.Tuple;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Service for rebuilding the Redis leaderboard from the database
+ * Rows are streamed in keyset-paged chunks and pipelined into temporary keys,
+ * which are then renamed over the live keys so readers never see a partial board.
+ * A marker key per shard is set before the first chunk is read; while it exists the write scripts mirror
+ * score updates and removals into the temporary keys, so no change made during the rebuild is lost.
+ */
+@Service
+public class LeaderboardRebuildService {
+
+    private static final Logger log = LoggerFactory.getLogger(LeaderboardRebuildService.class);
+    private static final int CHUNK_SIZE = 5000;
+    private static final int REBUILD_KEY_TTL_MINUTES = 30;
+    private static final String SWAP_SCRIPT = "scripts/leaderboard/swap.lua";
+    // A set cannot exist empty; user IDs are never blank
+    private static final String MARKER_MEMBER = "";
+
+    private final StringRedisTemplate redisTemplate;
+    private final GameStatsRepository gameStatsRepository;
+    private final LeaderboardShardService leaderboardShardService;
+    private final RedisScript<Long> swapScript;
+
+    public LeaderboardRebuildService(StringRedisTemplate redisTemplate,
+                                     GameStatsRepository gameStatsRepository,
+                                     LeaderboardShardService leaderboardShardService) {
+        this.redisTemplate = redisTemplate;
+        this.gameStatsRepository = gameStatsRepository;
+        this.leaderboardShardService = leaderboardShardService;
+        this.swapScript = RedisScript.of(new ClassPathResource(SWAP_SCRIPT), Long.class);
+    }
+
+    /**
+     * Rebuild the leaderboard and swap it in atomically
+     * Each chunk is read in its own short query on the primary, so no transaction is held open for the whole
+     * rebuild and no chunk misses a change made just before the rebuild started.
+     * Score updates and removals made while the rebuild runs are mirrored into the temporary keys by the write scripts.
+     *
+     * @return Number of players on the rebuilt leaderboard
+     */
+    public long rebuild() {
+        int shardCount = leaderboardShardService.getShardCount();
+        log.info("Rebuilding leaderboard from database into {} shard(s)", shardCount);
+        List<String> rebuildKeys = new ArrayList<>(shardCount * 3);
+        for (int shard = 0; shard < shardCount; shard++) {
+            rebuildKeys.add(leaderboardShardService.rebuildLeaderboardKey(shard));
+            rebuildKeys.add(leaderboardShardService.rebuildUsernamesKey(shard));
+            rebuildKeys.add(leaderboardShardService.rebuildMarkerKey(shard));
+        }
+        redisTemplate.delete(rebuildKeys);
+        startMirroring(shardCount);
+
+        try {
+            long lastId = 0;
+            List<LeaderboardRow> chunk;
+            do {
+                chunk = gameStatsRepository.findLeaderboardRowsAfter(lastId, PageRequest.of(0, CHUNK_SIZE));
+                if (chunk.isEmpty()) {
+                    break;
+                }
+                writeChunk(chunk);
+                lastId = chunk.get(chunk.size() - 1).getId();
+            } while (chunk.size() == CHUNK_SIZE);
+        } catch (RuntimeException e) {
+            // Stop the mirroring and drop the partial board
+            redisTemplate.delete(rebuildKeys);
+            throw e;
+        }
+
+        long total = 0;
+        for (int shard = 0; shard < shardCount; shard++) {
+            total += swapIn(shard);
+        }
+        log.info("Rebuilt leaderboard with {} players", total);
+        return total;
+    }
+
+    /**
+     * Set every shard's rebuild marker, before the first row is read
+     */
+    private void startMirroring(int shardCount) {
+        redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            for (int shard = 0; shard < shardCount; shard++) {
+                byte[] markerKey = bytes(leaderboardShardService.rebuildMarkerKey(shard));
+                connection.setCommands().sAdd(markerKey, bytes(MARKER_MEMBER));
+                connection.keyCommands().expire(markerKey, TimeUnit.MINUTES.toSeconds(REBUILD_KEY_TTL_MINUTES));
+            }
+            return null;
+        });
+    }
+
+    /**
+     * Write one chunk in a single pipelined round trip, each row into its player's shard
+     * ZADD GT keeps a newer score mirrored by a concurrent update from being overwritten by this snapshot
+     */
+    private void writeChunk(List<LeaderboardRow> chunk) {
+        Map<Integer, Set<Tuple>> scoresByShard = new HashMap<>();
+        Map<Integer, Map<byte[], byte[]>> usernamesByShard = new HashMap<>();
+        for (LeaderboardRow row : chunk) {
+            int shard = leaderboardShardService.shardOf(row.getUserId());
+            byte[] userId = bytes(String.valueOf(row.getUserId()));
+            scoresByShard.computeIfAbsent(shard, key -> new HashSet<>())
+                    .add(new DefaultTuple(userId, row.getScore().doubleValue()));
+            usernamesByShard.computeIfAbsent(shard, key -> new HashMap<>())
+                    .put(userId, bytes(row.getUsername()));
+        }
+
+        redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            scoresByShard.forEach((shard, scores) -> {
+                byte[] leaderboardKey = bytes(leaderboardShardService.rebuildLeaderboardKey(shard));
+                byte[] usernamesKey = bytes(leaderboardShardService.rebuildUsernamesKey(shard));
+                connection.zSetCommands().zAdd(leaderboardKey, scores, RedisZSetCommands.ZAddArgs.empty().gt());
+                connection.hashCommands().hMSet(usernamesKey, usernamesByShard.get(shard));
+                connection.keyCommands().expire(leaderboardKey, TimeUnit.MINUTES.toSeconds(REBUILD_KEY_TTL_MINUTES));
+                connection.keyCommands().expire(usernamesKey, TimeUnit.MINUTES.toSeconds(REBUILD_KEY_TTL_MINUTES));
+            });
+            return null;
+        });
+    }
+
+    /**
+     * Rename a shard's rebuilt keys over its live ones and remove the marker in one script
+     * Players removed during the rebuild are dropped first. All keys of a shard share a hash tag, so the
+     * script stays on one node.
+     *
+     * @return Number of players on the shard
+     */
+    private long swapIn(int shard) {
+        List<String> keys = List.of(
+                leaderboardShardService.leaderboardKey(shard),
+                leaderboardShardService.usernamesKey(shard),
+                leaderboardShardService.rebuildLeaderboardKey(shard),
+                leaderboardShardService.rebuildUsernamesKey(shard),
+                leaderboardShardService.rebuildMarkerKey(shard));
+        Long players = redisTemplate.execute(swapScript, keys,
+                String.valueOf(TimeUnit.DAYS.toSeconds(LeaderboardService.DEFAULT_CACHE_DAYS)));
+        return players != null ? players : 0;
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,135 @@
+package com.example.Immobi.Service;
+
+import com.example.Immobi.Core.dto.BaseResponse;
+import com.example.Immobi.Dto.player.LeaderboardEntryDto;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.util.DigestUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Service holding pre-serialized leaderboard responses
+ * Each rendering is keyed by the near-cache snapshot version, so JSON serialization and gzip
+ * run once per leaderboard change instead of once per request. The rendered body carries no timestamp,
+ * so it depends on the entries alone; its ETag is a hash of it, the same on every node and across restarts
+ * for the same content, and never the same for different content.
+ */
+@Service
+public class LeaderboardResponseCacheService {
+
+    private static final Logger log = LoggerFactory.getLogger(LeaderboardResponseCacheService.class);
+
+    /**
+     * Serialized leaderboard response, plain and gzipped
+     */
+    public static final class RenderedLeaderboard {
+        private final long version;
+        private final String etag;
+        private final byte[] json;
+        private final byte[] gzip;
+
+        private RenderedLeaderboard(long version, String etag, byte[] json, byte[] gzip) {
+            this.version = version;
+            this.etag = etag;
+            this.json = json;
+            this.gzip = gzip;
+        }
+
+        /**
+         * Quoted entity tag, null when the response must not be cached by clients
+         */
+        public String getEtag() {
+            return etag;
+        }
+
+        public byte[] getJson() {
+            return json;
+        }
+
+        public byte[] getGzip() {
+            return gzip;
+        }
+    }
+
+    private final LeaderboardService leaderboardService;
+    private final ObjectMapper objectMapper;
+    private final Map<Integer, RenderedLeaderboard> renderedBySize = new ConcurrentHashMap<>();
+
+    public LeaderboardResponseCacheService(LeaderboardService leaderboardService, ObjectMapper objectMapper) {
+        this.leaderboardService = leaderboardService;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Get the rendered top players response for the given size
+     * Only renders when the snapshot version changed since the last rendering of that size.
+     * Falls back to the database when Redis fails.
+     *
+     * @param leaderboardSize Number of players, capped at the near-cache capacity
+     */
+    public RenderedLeaderboard getLeaderboard(int leaderboardSize) {
+        leaderboardSize = Math.min(leaderboardSize, getMaxSize());
+        LeaderboardNearCacheService.Snapshot snapshot;
+        try {
+            snapshot = leaderboardService.getTopPlayersSnapshot();
+        } catch (Exception e) {
+            log.error("Error retrieving leaderboard: {}", e.getMessage(), e);
+            // Read on every request while Redis fails, and not tagged: it is not a snapshot version
+            return render(leaderboardService.readTopPlayersFromDatabase(leaderboardSize), 0, false);
+        }
+
+        RenderedLeaderboard cached = renderedBySize.get(leaderboardSize);
+        if (cached != null && cached.version == snapshot.getVersion()) {
+            return cached;
+        }
+
+        return renderedBySize.compute(leaderboardSize, (size, existing) -> {
+            if (existing != null && existing.version >= snapshot.getVersion()) {
+                return existing;
+            }
+            return render(snapshot.getTop(size), snapshot.getVersion(), true);
+        });
+    }
+
+    /**
+     * Largest size served from the snapshot, larger requests are capped to it
+     */
+    public int getMaxSize() {
+        return leaderboardService.getNearCacheCapacity();
+    }
+
+    private RenderedLeaderboard render(List<LeaderboardEntryDto> entries, long version, boolean cacheable) {
+        BaseResponse<List<LeaderboardEntryDto>> response = BaseResponse.success(
+                entries,
+                String.format("Top %d players retrieved successfully", entries.size()));
+        // A render time would be served long after it was taken and differ between nodes for the same entries
+        response.setTimestamp(null);
+        try {
+            byte[] json = objectMapper.writeValueAsBytes(response);
+            String etag = cacheable ? "\"lb-" + DigestUtils.md5DigestAsHex(json) + "\"" : null;
+            return new RenderedLeaderboard(version, etag, json, gzip(json));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not serialize leaderboard", e);
+        }
+    }
+
+    private static byte[] gzip(byte[] json) {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(json.length / 2);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(buffer)) {
+            gzip.write(json);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return buffer.toByteArray();
+    }
+}
@@ -1,195 +1,383 @@
 package com.example.Immobi.Service;
 
+import com.example.Immobi.Core.exception.BusinessException;
+import com.example.Immobi.Core.exception.ErrorCode;
 import com.example.Immobi.Dto.player.LeaderboardEntryDto;
-import com.example.Immobi.Dto.game.UserRankData;
-import com.example.Immobi.Entity.GameStats;
-import com.example.Immobi.Entity.User;
 import com.example.Immobi.Repository.GameStatsRepository;
+import com.example.Immobi.Repository.projection.LeaderboardRow;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.redis.connection.ReturnType;
+import org.springframework.data.redis.connection.StringRedisConnection;
+import org.springframework.data.redis.core.StringRedisTemplate;
 import org.springframework.data.redis.core.ZSetOperations;
+import org.springframework.data.redis.core.script.RedisScript;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
 import java.util.Set;
-import java.util.concurrent.TimeUnit;
+import java.util.function.DoubleToIntFunction;
 
 /**
  * Service for managing leaderboard using Redis Sorted Sets
+ * Members are plain decimal user IDs, usernames are kept in a separate hash
+ * Players can be spread over several sorted sets, see {@link LeaderboardShardService}
  */
 @Service
 public class LeaderboardService {
 
+    public static final String LEADERBOARD_KEY = "game:leaderboard";
+    public static final String USERNAMES_KEY = "game:leaderboard:usernames";
+    public static final String REBUILD_LEADERBOARD_KEY = "game:leaderboard:rebuild";
+    public static final String REBUILD_USERNAMES_KEY = "game:leaderboard:rebuild:usernames";
+    public static final String REBUILD_MARKER_KEY = "game:leaderboard:rebuild:marker";
+    public static final int DEFAULT_CACHE_DAYS = 30;
+
     private static final Logger log = LoggerFactory.getLogger(LeaderboardService.class);
-    private static final String LEADERBOARD_KEY = "game:leaderboard";
-    private static final int DEFAULT_CACHE_DAYS = 30;
-    private static final String VALUE_DELIMITER = ":";
+    private static final String UPDATE_SCRIPT = "scripts/leaderboard/update.lua";
+    private static final String REMOVE_SCRIPT = "scripts/leaderboard/remove.lua";
+    private static final String UNKNOWN_USERNAME = "Unknown";
+    private static final String ONLY_RAISE = "GT";
 
-    private final RedisTemplate<String, Object> redisTemplate;
+    private final StringRedisTemplate redisTemplate;
+    private final LeaderboardLifecycleService leaderboardLifecycleService;
+    private final LeaderboardRankService leaderboardRankService;
+    private final LeaderboardNearCacheService leaderboardNearCacheService;
+    private final LeaderboardPeriodService leaderboardPeriodService;
+    private final LeaderboardShardService leaderboardShardService;
     private final GameStatsRepository gameStatsRepository;
+    private final RedisScript<Long> updateScript;
+    private final RedisScript<Long> removeScript;
 
-    public LeaderboardService(RedisTemplate<String, Object> redisTemplate, 
+    public LeaderboardService(StringRedisTemplate redisTemplate,
+                             LeaderboardLifecycleService leaderboardLifecycleService,
+                             LeaderboardRankService leaderboardRankService,
+                             LeaderboardNearCacheService leaderboardNearCacheService,
+                             LeaderboardPeriodService leaderboardPeriodService,
+                             LeaderboardShardService leaderboardShardService,
                              GameStatsRepository gameStatsRepository) {
         this.redisTemplate = redisTemplate;
+        this.leaderboardLifecycleService = leaderboardLifecycleService;
+        this.leaderboardRankService = leaderboardRankService;
+        this.leaderboardNearCacheService = leaderboardNearCacheService;
+        this.leaderboardPeriodService = leaderboardPeriodService;
+        this.leaderboardShardService = leaderboardShardService;
         this.gameStatsRepository = gameStatsRepository;
+        this.updateScript = RedisScript.of(new ClassPathResource(UPDATE_SCRIPT), Long.class);
+        this.removeScript = RedisScript.of(new ClassPathResource(REMOVE_SCRIPT), Long.class);
     }
 
     /**
      * Initialize leaderboard data from database if not exists in Redis
+     * A leaderboard without its username hash is rebuilt as well, so every member can be displayed
      */
-    @Transactional(readOnly = true)
     public void initializeLeaderboard() {
-        if (Boolean.FALSE.equals(redisTemplate.hasKey(LEADERBOARD_KEY))) {
-            log.info("Initializing leaderboard in Redis from database");
-            
-            List<GameStats> allStats = gameStatsRepository.findAll();
-            
-            if (!allStats.isEmpty()) {
-                for (GameStats stats : allStats) {
-                    User player = stats.getPlayer();
-                    updatePlayerScore(player.getId(), player.getUsername(), stats.getScore());
-                }
-                
-                redisTemplate.expire(LEADERBOARD_KEY, DEFAULT_CACHE_DAYS, TimeUnit.DAYS);
-                
-                log.info("Initialized leaderboard with {} players", allStats.size());
-            }
-        }
+        leaderboardLifecycleService.initialize();
     }
 
     /**
      * Update a player's score in the leaderboard
-     * Value format: userId:username
+     * The sorted set member is the user ID, the username is stored next to it for display
      */
     public void updatePlayerScore(Long userId, String username, int score) {
         try {
-            String memberValue = encodeValue(userId, username);
-            redisTemplate.opsForZSet().add(LEADERBOARD_KEY, memberValue, (double)score);
+            redisTemplate.execute(updateScript, leaderboardShardService.writeKeys(userId),
+                    String.valueOf(userId), username, String.valueOf(score));
+            leaderboardNearCacheService.onScoreChanged(score);
             log.debug("Updated score for user ID {} to {} in leaderboard", userId, score);
         } catch (Exception e) {
             log.error("Error updating leaderboard for user {}: {}", userId, e.getMessage(), e);
         }
     }
 
+    /**
+     * Load the write scripts on a connection, ahead of pipelined {@link #queueScoreUpdate} calls
+     */
+    public void loadScripts(StringRedisConnection connection) {
+        connection.scriptingCommands().scriptLoad(updateScript.getScriptAsString().getBytes(StandardCharsets.UTF_8));
+        leaderboardPeriodService.loadScript(connection);
+    }
+
+    /**
+     * Queue a player's score on a pipelined connection
+     * The all-time score is only ever raised, so updates may be replayed or applied out of order.
+     * The caller notifies the near-cache once the pipeline has been executed.
+     */
+    public void queueScoreUpdate(StringRedisConnection connection, Long userId, String username, int score) {
+        List<String> keys = leaderboardShardService.writeKeys(userId);
+        String[] keysAndArgs = new String[keys.size() + 4];
+        keys.toArray(keysAndArgs);
+        keysAndArgs[keys.size()] = String.valueOf(userId);
+        keysAndArgs[keys.size() + 1] = username;
+        keysAndArgs[keys.size() + 2] = String.valueOf(score);
+        keysAndArgs[keys.size() + 3] = ONLY_RAISE;
+        connection.evalSha(updateScript.getSha1(), ReturnType.INTEGER, keys.size(), keysAndArgs);
+    }
+
+    /**
+     * Queue the wins of an outbox event on a pipelined connection
+     * They count towards the periods they were won in, and once however often the event is replayed.
+     */
+    public void queueWins(StringRedisConnection connection, Long userId, int wins, Long eventId, Instant wonAt) {
+        leaderboardPeriodService.addPoints(connection, userId, wins, eventId, wonAt);
+    }
+
+    /**
+     * Notify the near-cache of a score written to the leaderboard by another component, e.g. the Redis guess script
+     */
+    public void onScoreChanged(int score) {
+        leaderboardNearCacheService.onScoreChanged(score);
+    }
+
+    /**
+     * Count wins on the daily, weekly and season leaderboards
+     * Costs one extra round trip next to {@link #updatePlayerScore}
+     */
+    public void recordWins(Long userId, int wins) {
+        try {
+            leaderboardPeriodService.addPoints(userId, wins);
+        } catch (Exception e) {
+            log.error("Error updating period leaderboards for user {}: {}", userId, e.getMessage(), e);
+        }
+    }
+
     /**
      * Get a player's rank in the leaderboard
+     * Falls back to the database score histogram when Redis fails
      * @return 1-based rank or null if not found
      */
     public Integer getPlayerRank(Long userId) {
         try {
-            Set<Object> allValues = redisTemplate.opsForZSet().reverseRange(LEADERBOARD_KEY, 0, -1);
-            if (allValues == null || allValues.isEmpty()) {
+            return leaderboardShardService.getRank(userId);
+        } catch (Exception e) {
+            log.error("Error getting rank for user {}: {}", userId, e.getMessage(), e);
+            try {
+                return gameStatsRepository.getPlayerRank(userId).orElse(null);
+            } catch (Exception databaseError) {
+                log.error("Error getting rank for user {} from database: {}", userId, databaseError.getMessage(), databaseError);
                 return null;
             }
-            
-            String userIdStr = String.valueOf(userId);
-            int rank = 0;
-            Double lastScore = null;
-            int duplicateRankCounter = 0;
-            
-            for (Object value : allValues) {
-                String memberValue = value.toString();
-                String[] parts = memberValue.split(VALUE_DELIMITER);
-                
-                if (parts.length >= 1) {
-                    String currentUserId = parts[0];
-                    Double currentScore = redisTemplate.opsForZSet().score(LEADERBOARD_KEY, memberValue);
-
-                    if (Objects.equals(currentScore, lastScore)) {
-                        duplicateRankCounter++;
-                    } else {
-                        rank += duplicateRankCounter + 1;
-                        duplicateRankCounter = 0;
-                        lastScore = currentScore;
-                    }
+        }
+    }
 
-                    if (userIdStr.equals(currentUserId)) {
-                        return rank; // 1-based rank
-                    }
-                }
-            }
-            
-            return null; // User not found
+    /**
+     * Get the rank a score holds on the leaderboard, e.g. the rank a player has just reached
+     * One ZCOUNT (per shard), without looking the player up; the database score histogram when Redis fails
+     * @return 1-based rank or null if neither Redis nor the database is available
+     */
+    public Integer getRankForScore(int score) {
+        try {
+            return leaderboardShardService.getRankForScore(score);
         } catch (Exception e) {
-            log.error("Error getting rank for user {}: {}", userId, e.getMessage(), e);
-            return null;
+            log.error("Error getting rank for score {}: {}", score, e.getMessage(), e);
+            try {
+                return gameStatsRepository.getRankForScore(score);
+            } catch (Exception databaseError) {
+                log.error("Error getting rank for score {} from database: {}", score, databaseError.getMessage(), databaseError);
+                return null;
+            }
         }
     }
 
     /**
-     * Get top players from the leaderboard (Redis only, no DB queries)
+     * Read top players from the database, for when Redis is unavailable
+     * One LIMIT query over the score index, no entities are loaded
+     *
+     * @return Top players, empty when the database fails too
      */
-    public List<LeaderboardEntryDto> getTopPlayers(int leaderboardSize) {
-        List<LeaderboardEntryDto> leaderboard = new ArrayList<>();
-        
+    public List<LeaderboardEntryDto> readTopPlayersFromDatabase(int leaderboardSize) {
         try {
-            initializeLeaderboard();
-            
-            Set<ZSetOperations.TypedTuple<Object>> rangeWithScores = 
-                redisTemplate.opsForZSet().reverseRangeWithScores(LEADERBOARD_KEY, 0, leaderboardSize - 1);
-            
-            if (!rangeWithScores.isEmpty()) {
-                int rank = 1;
-                Double previousScore = null;
-                int sameScoreRank = 1;
-                
-                for (ZSetOperations.TypedTuple<Object> tuple : rangeWithScores) {
-                    Object value = tuple.getValue();
-                    Double score = tuple.getScore();
-                    
-                    if (value != null && score != null) {
-                        String memberValue = value.toString();
-                        UserRankData userRankData = decodeValue(memberValue);
-                        
-                        // Update rank only when score changes (dense ranking)
-                        sameScoreRank = Objects.equals(previousScore, score) ? sameScoreRank : rank;
-                        
-                        leaderboard.add(LeaderboardEntryDto.builder()
-                                .userId(userRankData.getUserId())
-                                .username(userRankData.getUsername())
-                                .score(score.intValue())
-                                .rank(sameScoreRank)
-                                .build());
-                        
-                        previousScore = score;
-                        rank++;
-                    }
+            List<LeaderboardRow> rows = gameStatsRepository.findTopPlayers(leaderboardSize);
+            List<LeaderboardEntryDto> leaderboard = new ArrayList<>(rows.size());
+            int position = 1;
+            int sameScoreRank = 1;
+            Integer previousScore = null;
+            for (LeaderboardRow row : rows) {
+                if (!Objects.equals(previousScore, row.getScore())) {
+                    sameScoreRank = position;
                 }
+                leaderboard.add(LeaderboardEntryDto.builder()
+                        .userId(row.getUserId())
+                        .username(row.getUsername())
+                        .score(row.getScore())
+                        .rank(sameScoreRank)
+                        .build());
+                previousScore = row.getScore();
+                position++;
             }
-            
-            log.debug("Retrieved {} entries from leaderboard", leaderboard.size());
             return leaderboard;
-            
         } catch (Exception e) {
-            log.error("Error retrieving leaderboard: {}", e.getMessage(), e);
+            log.error("Error retrieving leaderboard from database: {}", e.getMessage(), e);
             return new ArrayList<>();
         }
     }
 
     /**
-     * Remove a player from the leaderboard
+     * Number of top players held in this node's snapshot
      */
-    public void removePlayer(Long userId) {
+    public int getNearCacheCapacity() {
+        return leaderboardNearCacheService.getCapacity();
+    }
+
+    /**
+     * Get this node's snapshot of the top players, reloading it from Redis only when it is dirty or too old
+     */
+    public LeaderboardNearCacheService.Snapshot getTopPlayersSnapshot() {
+        leaderboardLifecycleService.ensureReady();
+        return leaderboardNearCacheService.getSnapshot(() -> readTopPlayers(leaderboardNearCacheService.getCapacity()));
+    }
+
+    public int getShardCount() {
+        return leaderboardShardService.getShardCount();
+    }
+
+    /**
+     * Get one page of the leaderboard
+     * Pages are anchored on a position in every shard rather than a merged offset, so a page costs a bounded
+     * number of O(log N + size) Redis operations per shard however deep it is
+     *
+     * @param shardPositions Positions returned with the previous page, null for the first page
+     * @return Page of entries with the shard positions of the next page
+     */
+    public Page getLeaderboardPage(long[] shardPositions, int size) {
+        long[] positions = shardPositions != null ? shardPositions : leaderboardShardService.firstPositions();
         try {
-            Set<Object> allValues = redisTemplate.opsForZSet().range(LEADERBOARD_KEY, 0, -1);
-            if (allValues == null || allValues.isEmpty()) {
-                return;
+            leaderboardLifecycleService.ensureReady();
+            LeaderboardShardService.Window window = leaderboardShardService.reverseRange(sum(positions), positions, size);
+            return new Page(toEntries(window), window.getNextPositions());
+        } catch (Exception e) {
+            log.error("Error retrieving leaderboard page at {}: {}", sum(positions), e.getMessage(), e);
+            return new Page(new ArrayList<>(), positions);
+        }
+    }
+
+    /**
+     * Get the players ranked around a player, the player included
+     *
+     * @param radius Number of positions above and below the player
+     * @return Up to 2 * radius + 1 entries, empty if the player is not on the leaderboard
+     */
+    public List<LeaderboardEntryDto> getPlayersAround(Long userId, int radius) {
+        try {
+            leaderboardLifecycleService.ensureReady();
+            LeaderboardShardService.Window window = leaderboardShardService.reverseRangeAround(userId, radius);
+            return window != null ? toEntries(window) : new ArrayList<>();
+        } catch (Exception e) {
+            log.error("Error retrieving players around user {}: {}", userId, e.getMessage(), e);
+            return new ArrayList<>();
+        }
+    }
+
+    /**
+     * Get top players of a time-windowed leaderboard
+     * Usernames come from the all-time username hash, which holds every player
+     */
+    public List<LeaderboardEntryDto> getPeriodTopPlayers(LeaderboardPeriodService.Period period, int leaderboardSize) {
+        try {
+            String periodKey = leaderboardPeriodService.resolveKey(period);
+            Set<ZSetOperations.TypedTuple<String>> range =
+                redisTemplate.opsForZSet().reverseRangeWithScores(periodKey, 0, leaderboardSize - 1);
+            return toEntries(range != null ? new ArrayList<>(range) : new ArrayList<>(), 0,
+                score -> leaderboardRankService.getRankForScore(periodKey, score));
+        } catch (Exception e) {
+            log.error("Error retrieving {} leaderboard: {}", period.getPath(), e.getMessage(), e);
+            return new ArrayList<>();
+        }
+    }
+
+    /**
+     * Read top players from Redis
+     * One ZREVRANGE and one HMGET per shard
+     */
+    private List<LeaderboardEntryDto> readTopPlayers(int leaderboardSize) {
+        long[] positions = leaderboardShardService.firstPositions();
+        return toEntries(leaderboardShardService.reverseRange(0, positions, leaderboardSize));
+    }
+
+    /**
+     * Turn a window of the merged leaderboard into ranked entries
+     * Past the first page one ZCOUNT per shard gives the rank of the first entry
+     */
+    private List<LeaderboardEntryDto> toEntries(LeaderboardShardService.Window window) {
+        return toEntries(window.getEntries(), window.getStart(), leaderboardShardService::getRankForScore);
+    }
+
+    private static long sum(long[] positions) {
+        long total = 0;
+        for (long position : positions) {
+            total += position;
+        }
+        return total;
+    }
+
+    /**
+     * Turn a window of sorted set entries into ranked leaderboard entries
+     *
+     * @param start 0-based position of the first entry
+     * @param rankForScore Rank lookup for the first entry of a window that starts mid-board
+     */
+    private List<LeaderboardEntryDto> toEntries(List<ZSetOperations.TypedTuple<String>> rangeWithScores,
+                                                long start, DoubleToIntFunction rankForScore) {
+        List<LeaderboardEntryDto> leaderboard = new ArrayList<>();
+
+        if (!rangeWithScores.isEmpty()) {
+            List<String> userIds = new ArrayList<>(rangeWithScores.size());
+            for (ZSetOperations.TypedTuple<String> tuple : rangeWithScores) {
+                userIds.add(tuple.getValue());
             }
-            
-            String userIdStr = String.valueOf(userId);
-            for (Object value : allValues) {
-                String memberValue = value.toString();
-                String[] parts = memberValue.split(VALUE_DELIMITER);
-                
-                if (parts.length >= 1 && userIdStr.equals(parts[0])) {
-                    redisTemplate.opsForZSet().remove(LEADERBOARD_KEY, memberValue);
-                    log.debug("Removed user ID {} from leaderboard", userId);
-                    break;
+            List<Object> usernames = leaderboardShardService.getUsernames(userIds);
+
+            long position = start + 1;
+            int index = 0;
+            Double previousScore = null;
+            int sameScoreRank = 1;
+
+            for (ZSetOperations.TypedTuple<String> tuple : rangeWithScores) {
+                String value = tuple.getValue();
+                Double score = tuple.getScore();
+                Object username = usernames.get(index++);
+
+                if (value != null && score != null) {
+                    if (previousScore == null && start > 0) {
+                        // Window starts mid-board: the first entry may share its rank with players above it
+                        sameScoreRank = rankForScore.applyAsInt(score);
+                    } else if (!Objects.equals(previousScore, score)) {
+                        // Update rank only when score changes (tied scores share a rank)
+                        sameScoreRank = (int) position;
+                    }
+
+                    leaderboard.add(LeaderboardEntryDto.builder()
+                            .userId(Long.valueOf(value))
+                            .username(username != null ? username.toString() : UNKNOWN_USERNAME)
+                            .score(score.intValue())
+                            .rank(sameScoreRank)
+                            .build());
+
+                    previousScore = score;
                 }
+                position++;
+            }
+        }
+
+        log.debug("Retrieved {} entries from leaderboard", leaderboard.size());
+        return leaderboard;
+    }
+
+    /**
+     * Remove a player from the leaderboard
+     */
+    public void removePlayer(Long userId) {
+        try {
+            Long removed = redisTemplate.execute(removeScript, leaderboardShardService.writeKeys(userId),
+                    String.valueOf(userId));
+            if (removed != null && removed > 0) {
+                leaderboardNearCacheService.publishChange();
+                log.debug("Removed user ID {} from leaderboard", userId);
             }
         } catch (Exception e) {
             log.error("Error removing user {} from leaderboard: {}", userId, e.getMessage(), e);
@@ -198,46 +386,51 @@ public class LeaderboardService {
 
     public long getTotalPlayers() {
         try {
-            Long size = redisTemplate.opsForZSet().size(LEADERBOARD_KEY);
-            return size != null ? size : 0;
+            return leaderboardShardService.size();
         } catch (Exception e) {
             log.error("Error getting leaderboard size: {}", e.getMessage(), e);
             return 0;
         }
     }
-    
+
+    /**
+     * Rebuild the leaderboard from the database
+     * The current board keeps serving reads until the rebuilt one replaces it
+     *
+     * @throws BusinessException if another node is rebuilding the leaderboard, or the rebuild failed
+     */
     public void resetLeaderboard() {
-        try {
-            redisTemplate.delete(LEADERBOARD_KEY);
-            log.info("Leaderboard has been reset");
-            initializeLeaderboard();
-        } catch (Exception e) {
-            log.error("Error resetting leaderboard: {}", e.getMessage(), e);
+        switch (leaderboardLifecycleService.rebuild()) {
+            case REBUILT:
+                log.info("Leaderboard has been reset");
+                return;
+            case RUNNING_ELSEWHERE:
+                throw new BusinessException(ErrorCode.LEADERBOARD_REBUILD_IN_PROGRESS,
+                        "Leaderboard is being rebuilt by another node");
+            default:
+                throw new BusinessException(ErrorCode.SERVICE_UNAVAILABLE, "Leaderboard could not be rebuilt");
         }
     }
-    
-    private String encodeValue(Long userId, String username) {
-        return String.valueOf(userId) + VALUE_DELIMITER + username;
-    }
-    
-    private UserRankData decodeValue(String value) {
-        String[] parts = value.split(VALUE_DELIMITER, 2);
-        Long userId = null;
-        String username = "Unknown";
-        
-        if (parts.length >= 1) {
-            try {
-                userId = Long.valueOf(parts[0]);
-            } catch (NumberFormatException e) {
-                log.error("Error parsing user ID: {}", e.getMessage());
-            }
+
+
+    /**
+     * One page of the leaderboard and the shard positions the next page starts from
+     */
+    public static final class Page {
+        private final List<LeaderboardEntryDto> entries;
+        private final long[] nextPositions;
+
+        private Page(List<LeaderboardEntryDto> entries, long[] nextPositions) {
+            this.entries = entries;
+            this.nextPositions = nextPositions;
         }
-        
-        if (parts.length >= 2) {
-            username = parts[1];
+
+        public List<LeaderboardEntryDto> getEntries() {
+            return entries;
         }
-        
-        return new UserRankData(userId, username);
-    }
 
-} 
\ No newline at end of file
+        public long[] getNextPositions() {
+            return nextPositions;
+        }
+    }
+}
@@ -0,0 +1,435 @@
+package com.example.Immobi.Service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.RedisOperations;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ZSetOperations;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/**
+ * Service routing leaderboard players to shards and fanning reads out across them
+ * With a single shard the original keys are used and every read is a single command. With S shards a player
+ * lives in the sorted set and username hash of shard (userId mod S); each shard's keys share a hash tag so
+ * the write scripts stay single-slot in a cluster. Ranks keep their meaning: one more than the number of
+ * players with a strictly higher score, summed over all shards.
+ * Across shards, players are ordered by score, then tied players by shard, then within a shard in the shard's
+ * own (reverse member) order, so the position of any player can be computed exactly from per-shard counts.
+ */
+@Service
+public class LeaderboardShardService {
+
+    private static final String STATS_KEY_PREFIX = "game:stats:";
+    // Merge order; entries of one shard arrive in that shard's own order
+    private static final Comparator<ShardCursor> BY_SCORE_DESC_THEN_SHARD =
+            Comparator.comparing((ShardCursor cursor) -> cursor.head.getScore(), Comparator.reverseOrder())
+                    .thenComparingInt(cursor -> cursor.shard);
+
+    private final StringRedisTemplate redisTemplate;
+    private final LeaderboardRankService leaderboardRankService;
+    private final int shardCount;
+    private final List<String> leaderboardKeys;
+
+    public LeaderboardShardService(StringRedisTemplate redisTemplate,
+                                   LeaderboardRankService leaderboardRankService,
+                                   @Value("${leaderboard.shards:1}") int shardCount) {
+        if (shardCount < 1) {
+            throw new IllegalArgumentException("leaderboard.shards must be at least 1");
+        }
+        this.redisTemplate = redisTemplate;
+        this.leaderboardRankService = leaderboardRankService;
+        this.shardCount = shardCount;
+        List<String> keys = new ArrayList<>(shardCount);
+        for (int shard = 0; shard < shardCount; shard++) {
+            keys.add(leaderboardKey(shard));
+        }
+        this.leaderboardKeys = List.copyOf(keys);
+    }
+
+    public int getShardCount() {
+        return shardCount;
+    }
+
+    public boolean isSharded() {
+        return shardCount > 1;
+    }
+
+    public int shardOf(Long userId) {
+        return (int) Math.floorMod(userId, (long) shardCount);
+    }
+
+    public String leaderboardKey(int shard) {
+        return isSharded() ? shardPrefix(shard) : LeaderboardService.LEADERBOARD_KEY;
+    }
+
+    public String usernamesKey(int shard) {
+        return isSharded() ? shardPrefix(shard) + ":usernames" : LeaderboardService.USERNAMES_KEY;
+    }
+
+    public String rebuildLeaderboardKey(int shard) {
+        return isSharded() ? shardPrefix(shard) + ":rebuild" : LeaderboardService.REBUILD_LEADERBOARD_KEY;
+    }
+
+    public String rebuildUsernamesKey(int shard) {
+        return isSharded() ? shardPrefix(shard) + ":rebuild:usernames" : LeaderboardService.REBUILD_USERNAMES_KEY;
+    }
+
+    /**
+     * Set present while a rebuild of the shard runs, holding the players removed meanwhile
+     */
+    public String rebuildMarkerKey(int shard) {
+        return isSharded() ? shardPrefix(shard) + ":rebuild:marker" : LeaderboardService.REBUILD_MARKER_KEY;
+    }
+
+    /**
+     * Keys passed to the update and remove scripts for a player, all in the player's shard
+     */
+    public List<String> writeKeys(Long userId) {
+        int shard = shardOf(userId);
+        return List.of(leaderboardKey(shard), usernamesKey(shard),
+                rebuildLeaderboardKey(shard), rebuildUsernamesKey(shard), rebuildMarkerKey(shard));
+    }
+
+    /**
+     * Redis hash holding a player's turns and score in the Redis guess mode
+     * Kept in the player's leaderboard shard so one script can update both
+     */
+    public String statsKey(Long userId) {
+        return isSharded() ? shardPrefix(shardOf(userId)) + ":stats:" + userId : STATS_KEY_PREFIX + userId;
+    }
+
+    /**
+     * Stream of stats changes made in a shard, replayed into the database
+     */
+    public String statsChangesKey(int shard) {
+        return isSharded() ? shardPrefix(shard) + ":stats:changes" : STATS_KEY_PREFIX + "changes";
+    }
+
+    public List<String> getLeaderboardKeys() {
+        return leaderboardKeys;
+    }
+
+    /**
+     * Get the rank of a player across all shards
+     * @return 1-based rank or null if the player is not on the leaderboard
+     */
+    public Integer getRank(Long userId) {
+        if (!isSharded()) {
+            return leaderboardRankService.getRank(LeaderboardService.LEADERBOARD_KEY, userId);
+        }
+        Double score = redisTemplate.opsForZSet().score(leaderboardKey(shardOf(userId)), String.valueOf(userId));
+        return score != null ? (int) countAbove(score) + 1 : null;
+    }
+
+    /**
+     * Get the rank a given score holds across all shards
+     */
+    public int getRankForScore(double score) {
+        if (!isSharded()) {
+            return leaderboardRankService.getRankForScore(LeaderboardService.LEADERBOARD_KEY, score);
+        }
+        return (int) countAbove(score) + 1;
+    }
+
+    /**
+     * Number of entries of each shard that come before a player in the merged order
+     * One ZSCORE, then one pipeline of a ZREVRANK in the player's shard and a ZCOUNT in every other shard
+     *
+     * @return Count per shard, null if the player is not on the leaderboard
+     */
+    private long[] shardPositionsBefore(Long userId) {
+        int playerShard = shardOf(userId);
+        String member = String.valueOf(userId);
+        Double score = redisTemplate.opsForZSet().score(leaderboardKey(playerShard), member);
+        if (score == null) {
+            return null;
+        }
+        double above = Math.nextUp(score);
+        List<Object> counts = pipelined(ops -> {
+            for (int shard = 0; shard < shardCount; shard++) {
+                if (shard == playerShard) {
+                    ops.opsForZSet().reverseRank(leaderboardKey(shard), member);
+                } else {
+                    // Ties sort by shard: a lower shard's ties come first, a higher shard's ties after
+                    ops.opsForZSet().count(leaderboardKey(shard), shard < playerShard ? score : above, Double.POSITIVE_INFINITY);
+                }
+            }
+        });
+        long[] before = new long[shardCount];
+        for (int shard = 0; shard < shardCount; shard++) {
+            Object count = counts.get(shard);
+            if (count == null && shard == playerShard) {
+                // Removed between the two round trips
+                return null;
+            }
+            before[shard] = count != null ? (Long) count : 0;
+        }
+        return before;
+    }
+
+    /**
+     * Shard positions of the top of the leaderboard, where the first page starts
+     */
+    public long[] firstPositions() {
+        return new long[shardCount];
+    }
+
+    /**
+     * Read a window of the leaderboard in descending score order
+     * Each shard is read from its own position for at most count entries in one pipeline and the ranges are
+     * k-way merged, so a page costs O(shards * (log N + count)) however deep it is
+     *
+     * @param start Merged position of the first entry, the sum of the shard positions
+     * @param shardPositions Position in each shard's own order where the window starts
+     */
+    public Window reverseRange(long start, long[] shardPositions, int count) {
+        List<Object> shardRanges = pipelined(ops -> {
+            for (int shard = 0; shard < shardCount; shard++) {
+                ops.opsForZSet().reverseRangeWithScores(leaderboardKey(shard), shardPositions[shard], shardPositions[shard] + count - 1);
+            }
+        });
+
+        long[] next = shardPositions.clone();
+        List<ZSetOperations.TypedTuple<String>> entries = new ArrayList<>(count);
+        merge(shardRanges, cursor -> {
+            if (entries.size() >= count) {
+                return false;
+            }
+            entries.add(cursor.head);
+            next[cursor.shard]++;
+            return true;
+        });
+        return new Window(start, entries, next);
+    }
+
+    /**
+     * Read the players ranked around a player, the player included
+     * Each shard is read within radius of where the player falls in it, which always covers the radius
+     * nearest players on both sides of the merged order
+     *
+     * @return Window of up to 2 * radius + 1 entries, null if the player is not on the leaderboard
+     */
+    public Window reverseRangeAround(Long userId, int radius) {
+        long[] before = isSharded() ? shardPositionsBefore(userId) : singleShardPositionBefore(userId);
+        if (before == null) {
+            return null;
+        }
+        List<Object> shardRanges = pipelined(ops -> {
+            for (int shard = 0; shard < shardCount; shard++) {
+                ops.opsForZSet().reverseRangeWithScores(leaderboardKey(shard),
+                        Math.max(0, before[shard] - radius), before[shard] + radius);
+            }
+        });
+
+        // Only the player's position in the merge is unknown; the window is bounded, so merge it whole
+        List<ZSetOperations.TypedTuple<String>> merged = new ArrayList<>();
+        merge(shardRanges, cursor -> merged.add(cursor.head));
+        String member = String.valueOf(userId);
+        int index = 0;
+        while (index < merged.size() && !member.equals(merged.get(index).getValue())) {
+            index++;
+        }
+        if (index == merged.size()) {
+            // Moved between the two round trips
+            return null;
+        }
+
+        int from = Math.max(0, index - radius);
+        int to = Math.min(merged.size(), index + radius + 1);
+        long position = 0;
+        for (long count : before) {
+            position += count;
+        }
+        return new Window(position - (index - from), new ArrayList<>(merged.subList(from, to)), null);
+    }
+
+    /**
+     * Number of entries of the only shard that come before a player
+     *
+     * @return Single count, null if the player is not on the leaderboard
+     */
+    private long[] singleShardPositionBefore(Long userId) {
+        Long rank = redisTemplate.opsForZSet().reverseRank(LeaderboardService.LEADERBOARD_KEY, String.valueOf(userId));
+        return rank != null ? new long[] {rank} : null;
+    }
+
+    /**
+     * K-way merge of pipelined shard ranges in the merged leaderboard order
+     *
+     * @param visitor Called with each entry in order until it returns false
+     */
+    private void merge(List<Object> shardRanges, Predicate<ShardCursor> visitor) {
+        PriorityQueue<ShardCursor> heads = new PriorityQueue<>(Math.max(1, shardRanges.size()), BY_SCORE_DESC_THEN_SHARD);
+        for (int shard = 0; shard < shardRanges.size(); shard++) {
+            @SuppressWarnings("unchecked")
+            Set<ZSetOperations.TypedTuple<String>> range = (Set<ZSetOperations.TypedTuple<String>>) shardRanges.get(shard);
+            if (range != null && !range.isEmpty()) {
+                heads.add(new ShardCursor(shard, range.iterator()));
+            }
+        }
+        while (!heads.isEmpty()) {
+            ShardCursor cursor = heads.poll();
+            if (!visitor.test(cursor)) {
+                return;
+            }
+            if (cursor.advance()) {
+                heads.add(cursor);
+            }
+        }
+    }
+
+    /**
+     * Look up usernames for the given members, one HMGET per shard involved
+     *
+     * @return Usernames in member order, null where unknown
+     */
+    public List<Object> getUsernames(List<String> userIds) {
+        if (!isSharded()) {
+            return redisTemplate.opsForHash().multiGet(LeaderboardService.USERNAMES_KEY, new ArrayList<>(userIds));
+        }
+
+        Map<Integer, List<Object>> idsByShard = new LinkedHashMap<>();
+        for (String userId : userIds) {
+            idsByShard.computeIfAbsent(shardOf(Long.valueOf(userId)), shard -> new ArrayList<>()).add(userId);
+        }
+        List<Object> shardUsernames = pipelined(ops -> idsByShard.forEach((shard, ids) ->
+                ops.opsForHash().multiGet(usernamesKey(shard), ids)));
+
+        Map<String, Object> usernames = new LinkedHashMap<>();
+        int index = 0;
+        for (List<Object> ids : idsByShard.values()) {
+            @SuppressWarnings("unchecked")
+            List<Object> names = (List<Object>) shardUsernames.get(index++);
+            for (int i = 0; i < ids.size(); i++) {
+                usernames.put((String) ids.get(i), names != null ? names.get(i) : null);
+            }
+        }
+        List<Object> ordered = new ArrayList<>(userIds.size());
+        for (String userId : userIds) {
+            ordered.add(usernames.get(userId));
+        }
+        return ordered;
+    }
+
+    /**
+     * Total number of players over all shards
+     */
+    public long size() {
+        long total = 0;
+        for (Object size : pipelined(ops -> leaderboardKeys.forEach(key -> ops.opsForZSet().size(key)))) {
+            total += size != null ? (Long) size : 0;
+        }
+        return total;
+    }
+
+    /**
+     * Whether the leaderboard is present in Redis
+     * Shards are checked individually; an empty shard has no key, so one present shard is enough
+     */
+    public boolean exists() {
+        for (int shard = 0; shard < shardCount; shard++) {
+            if (Boolean.TRUE.equals(redisTemplate.hasKey(leaderboardKey(shard)))
+                    && Boolean.TRUE.equals(redisTemplate.hasKey(usernamesKey(shard)))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Number of players with a strictly higher score, one pipelined ZCOUNT per shard
+     */
+    private long countAbove(double score) {
+        double lowerBound = Math.nextUp(score);
+        long above = 0;
+        for (Object count : pipelined(ops -> leaderboardKeys.forEach(key ->
+                ops.opsForZSet().count(key, lowerBound, Double.POSITIVE_INFINITY)))) {
+            above += count != null ? (Long) count : 0;
+        }
+        return above;
+    }
+
+    private List<Object> pipelined(Consumer<RedisOperations<String, String>> commands) {
+        List<Object> results = redisTemplate.executePipelined(new SessionCallback<Object>() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public <K, V> Object execute(RedisOperations<K, V> operations) {
+                commands.accept((RedisOperations<String, String>) operations);
+                return null;
+            }
+        });
+        return results != null ? results : Collections.emptyList();
+    }
+
+    private static String shardPrefix(int shard) {
+        return LeaderboardService.LEADERBOARD_KEY + ":{lb-" + shard + "}";
+    }
+
+    /**
+     * Position in one shard's range during the k-way merge
+     */
+    private static final class ShardCursor {
+        private final int shard;
+        private final Iterator<ZSetOperations.TypedTuple<String>> remaining;
+        private ZSetOperations.TypedTuple<String> head;
+
+        private ShardCursor(int shard, Iterator<ZSetOperations.TypedTuple<String>> remaining) {
+            this.shard = shard;
+            this.remaining = remaining;
+            this.head = remaining.next();
+        }
+
+        private boolean advance() {
+            if (!remaining.hasNext()) {
+                return false;
+            }
+            head = remaining.next();
+            return true;
+        }
+    }
+
+    /**
+     * Consecutive entries of the merged leaderboard
+     */
+    public static final class Window {
+        private final long start;
+        private final List<ZSetOperations.TypedTuple<String>> entries;
+        private final long[] nextPositions;
+
+        private Window(long start, List<ZSetOperations.TypedTuple<String>> entries, long[] nextPositions) {
+            this.start = start;
+            this.entries = entries;
+            this.nextPositions = nextPositions;
+        }
+
+        /**
+         * Merged 0-based position of the first entry
+         */
+        public long getStart() {
+            return start;
+        }
+
+        public List<ZSetOperations.TypedTuple<String>> getEntries() {
+            return entries;
+        }
+
+        /**
+         * Shard positions where the following window starts, null for a window around a player
+         */
+        public long[] getNextPositions() {
+            return nextPositions;
+        }
+    }
+}
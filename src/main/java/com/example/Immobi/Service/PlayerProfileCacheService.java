@@ -0,0 +1,79 @@
+package com.example.Immobi.Service;
+
+import com.example.Immobi.Core.config.RedisConfig;
+import com.example.Immobi.Dto.player.PlayerProfileDto;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * Service for the player profile cache, whose entries are written with the version of the stats they show
+ * A profile is only cached when no newer one was, so two changes of one player whose writes reach the
+ * cache in the other order, or a profile read from the database just before a change, cannot leave an
+ * older profile cached. Entries are read through the cache abstraction and stored in its format.
+ */
+@Service
+public class PlayerProfileCacheService {
+
+    private static final Logger log = LoggerFactory.getLogger(PlayerProfileCacheService.class);
+    private static final String PUT_SCRIPT = "scripts/cache/profile.lua";
+    private static final String VERSION_KEY_PREFIX = RedisConfig.CACHE_PLAYER_PROFILE + ":version:";
+
+    private final StringRedisTemplate redisTemplate;
+    private final CacheManager cacheManager;
+    private final RedisScript<Long> putScript;
+
+    public PlayerProfileCacheService(StringRedisTemplate redisTemplate, CacheManager cacheManager) {
+        this.redisTemplate = redisTemplate;
+        this.cacheManager = cacheManager;
+        this.putScript = RedisScript.of(new ClassPathResource(PUT_SCRIPT), Long.class);
+    }
+
+    /**
+     * Get a player's cached profile
+     *
+     * @return Cached profile, null on a miss or when Redis fails
+     */
+    public PlayerProfileDto get(Long userId) {
+        Cache cache = cacheManager.getCache(RedisConfig.CACHE_PLAYER_PROFILE);
+        if (cache == null) {
+            return null;
+        }
+        try {
+            return cache.get(userId, PlayerProfileDto.class);
+        } catch (Exception e) {
+            log.error("Error reading cached profile for user {}: {}", userId, e.getMessage(), e);
+            return null;
+        }
+    }
+
+    /**
+     * Cache a player's profile unless a profile of a newer version was cached
+     * The version of the last cached profile outlives an eviction, so a late write of an older profile
+     * is still refused after the entry was dropped.
+     *
+     * @param profile The profile
+     * @param version Version of the stats the profile shows
+     * @return Whether the profile was cached
+     */
+    public boolean put(PlayerProfileDto profile, long version) {
+        String value = new String(RedisConfig.CACHE_VALUE_SERIALIZER.serialize(profile), StandardCharsets.UTF_8);
+        try {
+            Long cached = redisTemplate.execute(putScript,
+                    List.of(RedisConfig.playerProfileKey(profile.getId()), VERSION_KEY_PREFIX + profile.getId()),
+                    String.valueOf(version), value, String.valueOf(RedisConfig.PLAYER_PROFILE_CACHE_TTL_SECONDS));
+            return cached != null && cached == 1L;
+        } catch (Exception e) {
+            log.error("Error caching profile for user {}: {}", profile.getId(), e.getMessage(), e);
+            return false;
+        }
+    }
+}
@@ -1,20 +1,27 @@
 package com.example.Immobi.Service;
 
 import com.example.Immobi.Core.config.RedisConfig;
+import com.example.Immobi.Core.exception.BusinessException;
+import com.example.Immobi.Core.exception.ErrorCode;
 import com.example.Immobi.Dto.player.LeaderboardEntryDto;
+import com.example.Immobi.Dto.player.LeaderboardPageDto;
 import com.example.Immobi.Dto.player.PlayerProfileDto;
-import com.example.Immobi.Entity.GameStats;
 import com.example.Immobi.Entity.User;
 import com.example.Immobi.Repository.GameStatsRepository;
+import com.example.Immobi.Repository.projection.PlayerProfileRow;
+import com.example.Immobi.Repository.projection.TurnResult;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.cache.annotation.CacheEvict;
-import org.springframework.cache.annotation.Cacheable;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
 import java.util.List;
 import java.util.Optional;
+import java.util.StringJoiner;
 
 /**
  * Service for player-related operations
@@ -24,55 +31,126 @@ public class PlayerService {
 
     private static final Logger log = LoggerFactory.getLogger(PlayerService.class);
     private static final int DEFAULT_LEADERBOARD_SIZE = 10;
+    private static final int MAX_PAGE_SIZE = 100;
+    private static final int MAX_AROUND_RADIUS = 25;
+    private static final long NO_STATS_VERSION = -1;
     
     private final GameStatsRepository gameStatsRepository;
     private final LeaderboardService leaderboardService;
+    private final LeaderboardResponseCacheService leaderboardResponseCacheService;
+    private final PlayerProfileCacheService playerProfileCacheService;
+    private final RedisGameStatsService redisGameStatsService;
 
-    public PlayerService(GameStatsRepository gameStatsRepository, LeaderboardService leaderboardService) {
+    public PlayerService(GameStatsRepository gameStatsRepository,
+                         LeaderboardService leaderboardService,
+                         LeaderboardResponseCacheService leaderboardResponseCacheService,
+                         PlayerProfileCacheService playerProfileCacheService,
+                         RedisGameStatsService redisGameStatsService) {
         this.gameStatsRepository = gameStatsRepository;
         this.leaderboardService = leaderboardService;
+        this.leaderboardResponseCacheService = leaderboardResponseCacheService;
+        this.playerProfileCacheService = playerProfileCacheService;
+        this.redisGameStatsService = redisGameStatsService;
     }
 
     /**
-     * Get top players for leaderboard
-     * Uses Redis Sorted Set for efficient real-time ranking
+     * Largest leaderboard size served pre-serialized, i.e. the near-cache capacity
+     */
+    public int getMaxRenderedLeaderboardSize() {
+        return leaderboardResponseCacheService.getMaxSize();
+    }
+    
+    /**
+     * Get the leaderboard response already serialized to JSON (and gzip)
+     * Re-rendered only when the leaderboard changes, identified by its ETag
      * 
-     * @param limit Number of players to return (default 10)
-     * @return List of leaderboard entries
+     * @param limit Number of players to return (default 10), capped at the near-cache capacity
+     * @return Rendered leaderboard response
      */
-    @Transactional(readOnly = true)
-    public List<LeaderboardEntryDto> getLeaderboard(int limit) {
+    public LeaderboardResponseCacheService.RenderedLeaderboard getRenderedLeaderboard(int limit) {
         int leaderboardSize = limit > 0 ? limit : DEFAULT_LEADERBOARD_SIZE;
-        log.info("Fetching top {} players for leaderboard", leaderboardSize);
+        return leaderboardResponseCacheService.getLeaderboard(leaderboardSize);
+    }
+    
+    /**
+     * Get top players of a daily, weekly, season or rolling leaderboard
+     * 
+     * @param period Path name of the period, e.g. "daily" or "last-7-days"
+     * @param limit Number of players to return (default 10), capped at {@value #MAX_PAGE_SIZE}
+     * @return List of leaderboard entries
+     */
+    public List<LeaderboardEntryDto> getPeriodLeaderboard(String period, int limit) {
+        LeaderboardPeriodService.Period leaderboardPeriod = LeaderboardPeriodService.Period.fromPath(period);
+        if (leaderboardPeriod == null) {
+            throw new BusinessException(ErrorCode.INVALID_FIELD_FORMAT, "Unknown leaderboard period: " + period);
+        }
+        int leaderboardSize = Math.min(limit > 0 ? limit : DEFAULT_LEADERBOARD_SIZE, MAX_PAGE_SIZE);
+        return leaderboardService.getPeriodTopPlayers(leaderboardPeriod, leaderboardSize);
+    }
+    
+    /**
+     * Get one page of the leaderboard
+     * 
+     * @param cursor Cursor returned with the previous page, null for the first page
+     * @param size Page size, capped at {@value #MAX_PAGE_SIZE}
+     * @return Page of entries with the cursor of the next page
+     */
+    public LeaderboardPageDto getLeaderboardPage(String cursor, int size) {
+        int pageSize = Math.min(size > 0 ? size : DEFAULT_LEADERBOARD_SIZE, MAX_PAGE_SIZE);
         
-        return leaderboardService.getTopPlayers(leaderboardSize);
+        LeaderboardService.Page page = leaderboardService.getLeaderboardPage(decodeCursor(cursor), pageSize);
+        List<LeaderboardEntryDto> entries = page.getEntries();
+        return LeaderboardPageDto.builder()
+                .entries(entries)
+                .nextCursor(entries.size() == pageSize ? encodeCursor(page.getNextPositions()) : null)
+                .build();
+    }
+    
+    /**
+     * Get the players ranked just above and below the user
+     * 
+     * @param user The user
+     * @param radius Number of positions on each side, capped at {@value #MAX_AROUND_RADIUS}
+     * @return Leaderboard window centred on the user
+     */
+    public List<LeaderboardEntryDto> getPlayersAroundMe(User user, int radius) {
+        int window = Math.min(Math.max(radius, 0), MAX_AROUND_RADIUS);
+        return leaderboardService.getPlayersAround(user.getId(), window);
     }
     
     /**
      * Get player profile with stats
-     * Profile info still uses Redis cache for efficiency
+     * Profiles are cached in Redis with the version of their stats. On a miss the stats are read as a
+     * projection by a single query on the primary, so no connection is held during the Redis rank lookup and
+     * the cached profile never comes from a lagging replica; in the Redis mode turns and score come from the
+     * player's Redis stats, which the database only follows.
      * 
      * @param user The user
      * @return Player profile DTO
      */
-    @Cacheable(value = RedisConfig.CACHE_PLAYER_PROFILE, key = "#user.id")
-    @Transactional(readOnly = true)
     public PlayerProfileDto getPlayerProfile(User user) {
+        PlayerProfileDto cached = playerProfileCacheService.get(user.getId());
+        if (cached != null) {
+            return cached;
+        }
         log.info("Fetching profile for user ID: {}", user.getId());
         
         // Get player stats
-        Optional<GameStats> statsOptional = gameStatsRepository.findByPlayerIdWithPlayer(user.getId());
+        Optional<PlayerProfileRow> profileOptional = gameStatsRepository.findProfileByPlayerId(user.getId());
+        RedisGameStatsService.Stats redisStats = redisGameStatsService.isEnabled()
+                ? redisGameStatsService.getStats(user.getId())
+                : null;
         
         // Get player rank from Redis leaderboard (much faster than database query)
         Integer rank = leaderboardService.getPlayerRank(user.getId());
         
         // Create profile DTO
-        return statsOptional.map(stats -> PlayerProfileDto.builder()
+        PlayerProfileDto profile = profileOptional.map(row -> PlayerProfileDto.builder()
                 .id(user.getId())
-                .email(user.getEmail())
-                .username(user.getUsername())
-                .score(stats.getScore())
-                .remainingTurns(stats.getRemainingTurns())
+                .email(row.getEmail())
+                .username(row.getUsername())
+                .score(redisStats != null ? redisStats.getScore() : row.getScore())
+                .remainingTurns(redisStats != null ? redisStats.getRemainingTurns() : row.getRemainingTurns())
                 .rank(rank)
                 .build()
         ).orElseGet(() -> PlayerProfileDto.builder()
@@ -84,6 +162,11 @@ public class PlayerService {
                 .rank(null)
                 .build()
         );
+        // A player without stats gets version 0 when they are created, which replaces this profile
+        long version = redisStats != null ? redisStats.getVersion()
+                : profileOptional.map(PlayerProfileRow::getVersion).orElse(NO_STATS_VERSION);
+        playerProfileCacheService.put(profile, version);
+        return profile;
     }
     
     /**
@@ -96,6 +179,77 @@ public class PlayerService {
         log.info("Player profile cache cleared for user ID: {}", userId);
     }
     
+    /**
+     * Write a player's new stats through to the profile cache, so the next profile read is a hit
+     * Inside a transaction the write waits for the commit. The rank is the rank of the new score,
+     * taken from the leaderboard with a single count instead of a profile reload. The write is skipped
+     * when a newer version of the stats was cached first.
+     * 
+     * @param user The user whose stats changed
+     * @param stats Stats after the change, with their version
+     */
+    public void updatePlayerProfile(User user, TurnResult stats) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    putPlayerProfile(user, stats);
+                }
+            });
+            return;
+        }
+        putPlayerProfile(user, stats);
+    }
+    
+    private void putPlayerProfile(User user, TurnResult stats) {
+        playerProfileCacheService.put(PlayerProfileDto.builder()
+                .id(user.getId())
+                .email(user.getEmail())
+                .username(user.getUsername())
+                .score(stats.getScore())
+                .remainingTurns(stats.getRemainingTurns())
+                .rank(leaderboardService.getRankForScore(stats.getScore()))
+                .build(), stats.getVersion());
+    }
+    
+    /**
+     * Encode the position of the next page in every leaderboard shard
+     */
+    private String encodeCursor(long[] shardPositions) {
+        StringJoiner positions = new StringJoiner(",");
+        for (long position : shardPositions) {
+            positions.add(String.valueOf(position));
+        }
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(positions.toString().getBytes(StandardCharsets.UTF_8));
+    }
+    
+    /**
+     * Decode the shard positions of a cursor
+     * A cursor issued for another shard count no longer points at a page and is rejected
+     */
+    private long[] decodeCursor(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return null;
+        }
+        try {
+            String[] positions = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split(",", -1);
+            if (positions.length != leaderboardService.getShardCount()) {
+                throw new IllegalArgumentException("cursor of another shard count");
+            }
+            long[] shardPositions = new long[positions.length];
+            for (int i = 0; i < positions.length; i++) {
+                shardPositions[i] = Long.parseLong(positions[i]);
+                if (shardPositions[i] < 0) {
+                    throw new NumberFormatException("negative position");
+                }
+            }
+            return shardPositions;
+        } catch (IllegalArgumentException e) {
+            throw new BusinessException(ErrorCode.INVALID_FIELD_FORMAT, "Invalid leaderboard cursor");
+        }
+    }
+    
     /**
      * Reset the leaderboard data in Redis
      * This forces a refresh from the database
@@ -0,0 +1,217 @@
+package com.example.Immobi.Service;
+
+import com.example.Immobi.Entity.GameStats;
+import com.example.Immobi.Entity.User;
+import com.example.Immobi.Repository.projection.BatchTurnResult;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Service keeping players' turns and score in Redis when game.guess.mode=redis
+ * Redis is then the source of truth: every change is made by a script that also appends the new values
+ * to a change stream, and {@link GameStatsSyncService} replays that stream into the game_stats table.
+ * Stats hashes have no expiry; Redis must run without eviction and with persistence enabled.
+ */
+@Service
+public class RedisGameStatsService {
+
+    public static final String MODE_REDIS = "redis";
+
+    private static final String GUESS_SCRIPT = "scripts/game/guess.lua";
+    private static final String TURNS_SCRIPT = "scripts/game/turns.lua";
+    private static final String LOAD_SCRIPT = "scripts/game/load.lua";
+    private static final long STATUS_OK = 1L;
+    private static final long STATUS_NO_TURNS = 0L;
+    private static final List<Object> STATS_FIELDS = List.of("turns", "score", "version");
+
+    /**
+     * Player's stats as returned by the scripts
+     */
+    public static final class Stats implements BatchTurnResult {
+        private final Integer score;
+        private final Integer remainingTurns;
+        private final Integer played;
+        private final Long version;
+
+        private Stats(Integer score, Integer remainingTurns, Integer played, Long version) {
+            this.score = score;
+            this.remainingTurns = remainingTurns;
+            this.played = played;
+            this.version = version;
+        }
+
+        @Override
+        public Integer getScore() {
+            return score;
+        }
+
+        @Override
+        public Integer getRemainingTurns() {
+            return remainingTurns;
+        }
+
+        @Override
+        public Integer getPlayed() {
+            return played;
+        }
+
+        @Override
+        public Long getVersion() {
+            return version;
+        }
+    }
+
+    /**
+     * Outcome of a script call
+     */
+    public enum Status {
+        OK,
+        NO_TURNS_LEFT,
+        NOT_LOADED
+    }
+
+    /**
+     * Status of a script call, with the player's new stats when it succeeded
+     */
+    public static final class Result {
+        private final Status status;
+        private final Stats stats;
+
+        private Result(Status status, Stats stats) {
+            this.status = status;
+            this.stats = stats;
+        }
+
+        public Status getStatus() {
+            return status;
+        }
+
+        public Stats getStats() {
+            return stats;
+        }
+    }
+
+    private final StringRedisTemplate redisTemplate;
+    private final LeaderboardShardService leaderboardShardService;
+    private final RedisScript<List<Object>> guessScript;
+    private final RedisScript<List<Object>> turnsScript;
+    private final RedisScript<Long> loadScript;
+    private final boolean enabled;
+
+    public RedisGameStatsService(StringRedisTemplate redisTemplate,
+                                 LeaderboardShardService leaderboardShardService,
+                                 @Value("${game.guess.mode:database}") String guessMode) {
+        this.redisTemplate = redisTemplate;
+        this.leaderboardShardService = leaderboardShardService;
+        this.guessScript = listScript(GUESS_SCRIPT);
+        this.turnsScript = listScript(TURNS_SCRIPT);
+        this.loadScript = RedisScript.of(new ClassPathResource(LOAD_SCRIPT), Long.class);
+        this.enabled = MODE_REDIS.equalsIgnoreCase(guessMode);
+    }
+
+    /**
+     * Whether guesses are served from Redis instead of the database
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Consume up to one turn per guess, add the points of the guesses played and update the leaderboard
+     * once, in one atomic round trip
+     *
+     * @param cumulativePoints Points won by the first 1, 2, ... guesses
+     * @return Result whose status tells whether any turn was consumed
+     */
+    public Result consumeTurns(User player, int[] cumulativePoints) {
+        List<String> keys = new ArrayList<>(7);
+        keys.add(leaderboardShardService.statsKey(player.getId()));
+        keys.addAll(leaderboardShardService.writeKeys(player.getId()));
+        keys.add(statsChangesKey(player.getId()));
+
+        Object[] args = new Object[cumulativePoints.length + 2];
+        args[0] = String.valueOf(player.getId());
+        args[1] = player.getUsername();
+        for (int i = 0; i < cumulativePoints.length; i++) {
+            args[i + 2] = String.valueOf(cumulativePoints[i]);
+        }
+        return toResult(redisTemplate.execute(guessScript, keys, args));
+    }
+
+    /**
+     * Add turns to a player's stats
+     */
+    public Result addTurns(Long userId, int turns) {
+        return changeTurns(userId, "add", turns);
+    }
+
+    /**
+     * Set a player's turns to the given value
+     */
+    public Result setTurns(Long userId, int turns) {
+        return changeTurns(userId, "set", turns);
+    }
+
+    /**
+     * Seed a player's stats from the database row, unless Redis already holds them
+     * The stats continue the row's version, so profiles cached from the row stay older than the next change
+     */
+    public void load(GameStats gameStats) {
+        Long userId = gameStats.getPlayer().getId();
+        long version = gameStats.getVersion() != null ? gameStats.getVersion() : 0;
+        redisTemplate.execute(loadScript, Collections.singletonList(leaderboardShardService.statsKey(userId)),
+                String.valueOf(gameStats.getRemainingTurns()), String.valueOf(gameStats.getScore()),
+                String.valueOf(version));
+    }
+
+    /**
+     * Read a player's current stats
+     *
+     * @return Stats with no turns played, null if they are not loaded in Redis
+     */
+    public Stats getStats(Long userId) {
+        List<Object> values = redisTemplate.opsForHash().multiGet(leaderboardShardService.statsKey(userId), STATS_FIELDS);
+        if (values.get(0) == null) {
+            return null;
+        }
+        // Stats loaded before versions were kept start at 0
+        long version = values.get(2) != null ? Long.parseLong((String) values.get(2)) : 0;
+        return new Stats(Integer.valueOf((String) values.get(1)), Integer.valueOf((String) values.get(0)), 0, version);
+    }
+
+    private Result changeTurns(Long userId, String operation, int turns) {
+        List<String> keys = List.of(leaderboardShardService.statsKey(userId), statsChangesKey(userId));
+        return toResult(redisTemplate.execute(turnsScript, keys,
+                String.valueOf(userId), operation, String.valueOf(turns)));
+    }
+
+    private String statsChangesKey(Long userId) {
+        return leaderboardShardService.statsChangesKey(leaderboardShardService.shardOf(userId));
+    }
+
+    /**
+     * Script replying with a Redis array
+     */
+    @SuppressWarnings("unchecked")
+    private static RedisScript<List<Object>> listScript(String path) {
+        // List.class only selects the array reply type; the elements are the script's integers as Long
+        return (RedisScript<List<Object>>) (RedisScript<?>) RedisScript.of(new ClassPathResource(path), List.class);
+    }
+
+    private static Result toResult(List<Object> reply) {
+        long status = ((Number) reply.get(0)).longValue();
+        if (status == STATUS_OK) {
+            return new Result(Status.OK, new Stats(((Number) reply.get(2)).intValue(),
+                    ((Number) reply.get(1)).intValue(), ((Number) reply.get(3)).intValue(),
+                    ((Number) reply.get(4)).longValue()));
+        }
+        return new Result(status == STATUS_NO_TURNS ? Status.NO_TURNS_LEFT : Status.NOT_LOADED, null);
+    }
+}
@@ -0,0 +1,137 @@
+package com.example.Immobi.Service;
+
+import com.example.Immobi.Core.exception.BusinessException;
+import com.example.Immobi.Core.exception.ErrorCode;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.sql.SQLException;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Retries transactions aborted by contention: serialization failures (40001), deadlocks (40P01) and lock
+ * timeouts (55P03)
+ * Each call gets a bounded number of attempts with full-jitter exponential backoff, and each player a retry
+ * budget per budget window, so one hot player cannot keep the database busy with retries. A call that runs
+ * out of attempts or budget is rejected with CONCURRENT_REQUEST_ERROR (429) instead of a generic 500.
+ * The action must start a new transaction on every attempt.
+ */
+@Service
+public class TransactionRetryService {
+
+    private static final Logger log = LoggerFactory.getLogger(TransactionRetryService.class);
+    private static final Set<String> RETRYABLE_SQL_STATES = Set.of("40001", "40P01", "55P03");
+
+    private final MeterRegistry meterRegistry;
+    private final int maxAttempts;
+    private final long backoffBaseMillis;
+    private final long backoffMaxMillis;
+    private final int retriesPerPlayer;
+    private final Map<Long, AtomicInteger> retriesUsed = new ConcurrentHashMap<>();
+    private final Counter exhausted;
+    private final Counter overBudget;
+
+    public TransactionRetryService(MeterRegistry meterRegistry,
+                                   @Value("${game.retry.max-attempts:4}") int maxAttempts,
+                                   @Value("${game.retry.backoff-base-ms:10}") long backoffBaseMillis,
+                                   @Value("${game.retry.backoff-max-ms:200}") long backoffMaxMillis,
+                                   @Value("${game.retry.player-budget:10}") int retriesPerPlayer) {
+        this.meterRegistry = meterRegistry;
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.backoffBaseMillis = backoffBaseMillis;
+        this.backoffMaxMillis = backoffMaxMillis;
+        this.retriesPerPlayer = retriesPerPlayer;
+        this.exhausted = Counter.builder("game.tx.rejected").tag("reason", "attempts").register(meterRegistry);
+        this.overBudget = Counter.builder("game.tx.rejected").tag("reason", "budget").register(meterRegistry);
+    }
+
+    /**
+     * Run a transactional action not made for one player, retrying it while it fails on contention
+     * Only the attempt limit applies
+     *
+     * @param operation Operation name, used as metric tag
+     * @param action Action starting its own transaction
+     * @return Result of the first successful attempt
+     */
+    public <T> T execute(String operation, Supplier<T> action) {
+        return execute(operation, null, action);
+    }
+
+    /**
+     * Run a transactional action, retrying it while it fails on contention
+     *
+     * @param operation Operation name, used as metric tag
+     * @param userId Player whose retry budget is charged, null for none
+     * @param action Action starting its own transaction
+     * @return Result of the first successful attempt
+     */
+    public <T> T execute(String operation, Long userId, Supplier<T> action) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                T result = action.get();
+                // Mean of this summary is the number of attempts each success cost
+                DistributionSummary.builder("game.tx.attempts")
+                        .tag("operation", operation)
+                        .register(meterRegistry)
+                        .record(attempt);
+                return result;
+            } catch (RuntimeException e) {
+                if (!isContention(e)) {
+                    throw e;
+                }
+                if (attempt >= maxAttempts) {
+                    exhausted.increment();
+                    log.warn("{} for user {} still contended after {} attempts", operation, userId, attempt);
+                    throw new BusinessException(ErrorCode.CONCURRENT_REQUEST_ERROR, "Too many concurrent requests, try again later");
+                }
+                if (userId != null && retriesUsed.computeIfAbsent(userId, id -> new AtomicInteger()).incrementAndGet() > retriesPerPlayer) {
+                    overBudget.increment();
+                    throw new BusinessException(ErrorCode.CONCURRENT_REQUEST_ERROR, "Too many concurrent requests, try again later");
+                }
+                backOff(attempt);
+            }
+        }
+    }
+
+    /**
+     * Start a new budget window for every player
+     */
+    @Scheduled(fixedDelayString = "${game.retry.budget-window-ms:1000}")
+    public void resetBudgets() {
+        retriesUsed.clear();
+    }
+
+    private void backOff(int attempt) {
+        long ceiling = Math.min(backoffMaxMillis, backoffBaseMillis << Math.min(attempt - 1, 20));
+        try {
+            Thread.sleep(ThreadLocalRandom.current().nextLong(ceiling + 1));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new BusinessException(ErrorCode.REQUEST_TIMEOUT, e);
+        }
+    }
+
+    private static boolean isContention(Throwable error) {
+        for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+            if (cause instanceof ConcurrencyFailureException) {
+                return true;
+            }
+            if (cause instanceof SQLException sqlException && RETRYABLE_SQL_STATES.contains(sqlException.getSQLState())) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,115 @@
+package com.example.Immobi.Service;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Per-node memory of players known to have no turns left
+ * Guesses of such a player are rejected before any transaction, lane or Redis call. A player is remembered
+ * when a guess finds or leaves no turns, and forgotten when turns are added (on every node, via Redis pub/sub)
+ * or after the configured TTL, which bounds how long a lost message or a racing guess can block a player.
+ */
+@Service
+public class TurnGuardService implements MessageListener {
+
+    public static final String TURNS_CHANNEL = "game:turns:changes";
+
+    private static final Logger log = LoggerFactory.getLogger(TurnGuardService.class);
+
+    private final StringRedisTemplate redisTemplate;
+    private final long ttlMillis;
+    private final int maxPlayers;
+    private final Map<Long, Long> exhaustedUntil = new ConcurrentHashMap<>();
+
+    public TurnGuardService(StringRedisTemplate redisTemplate,
+                            RedisMessageListenerContainer listenerContainer,
+                            MeterRegistry meterRegistry,
+                            @Value("${game.guess.turn-guard.ttl-ms:2000}") long ttlMillis,
+                            @Value("${game.guess.turn-guard.max-players:100000}") int maxPlayers) {
+        this.redisTemplate = redisTemplate;
+        this.ttlMillis = ttlMillis;
+        this.maxPlayers = maxPlayers;
+        Gauge.builder("game.guess.turn_guard.size", exhaustedUntil, Map::size)
+                .description("Players this node currently rejects without a database call")
+                .register(meterRegistry);
+        listenerContainer.addMessageListener(this, new ChannelTopic(TURNS_CHANNEL));
+    }
+
+    /**
+     * Whether the player is known to have no turns left
+     */
+    public boolean isExhausted(Long userId) {
+        Long until = exhaustedUntil.get(userId);
+        if (until == null) {
+            return false;
+        }
+        if (until < System.currentTimeMillis()) {
+            exhaustedUntil.remove(userId, until);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Remember that the player has no turns left
+     */
+    public void markExhausted(Long userId) {
+        long now = System.currentTimeMillis();
+        if (exhaustedUntil.size() >= maxPlayers) {
+            exhaustedUntil.values().removeIf(until -> until < now);
+            if (exhaustedUntil.size() >= maxPlayers) {
+                return;
+            }
+        }
+        exhaustedUntil.put(userId, now + ttlMillis);
+    }
+
+    /**
+     * Forget the player on every node once the transaction adding turns has committed
+     */
+    public void onTurnsAdded(Long userId) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    publishTurnsAdded(userId);
+                }
+            });
+            return;
+        }
+        publishTurnsAdded(userId);
+    }
+
+    private void publishTurnsAdded(Long userId) {
+        exhaustedUntil.remove(userId);
+        try {
+            redisTemplate.convertAndSend(TURNS_CHANNEL, String.valueOf(userId));
+        } catch (Exception e) {
+            log.error("Error publishing turn change for user {}: {}", userId, e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        try {
+            exhaustedUntil.remove(Long.valueOf(new String(message.getBody(), StandardCharsets.UTF_8)));
+        } catch (NumberFormatException e) {
+            log.warn("Ignoring malformed turn change message");
+        }
+    }
+}
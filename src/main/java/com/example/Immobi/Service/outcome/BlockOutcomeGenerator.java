@@ -0,0 +1,75 @@
+package com.example.Immobi.Service.outcome;
+
+import java.util.SplittableRandom;
+
+/**
+ * Outcome generator serving draws from per-thread blocks generated ahead of time
+ * A block of win draws and a block of losing-number draws are refilled in one tight loop when used up,
+ * which keeps the per-guess path to an array read.
+ */
+public class BlockOutcomeGenerator extends BoundedOutcomeGenerator {
+
+    /**
+     * One thread's generator and pre-generated draws
+     */
+    private static final class Block {
+        private final SplittableRandom random;
+        private final int[] winDraws;
+        private final int[] numberDraws;
+        private int nextWin;
+        private int nextNumber;
+
+        private Block(SplittableRandom random, int size) {
+            this.random = random;
+            this.winDraws = new int[size];
+            this.numberDraws = new int[size];
+            this.nextWin = size;
+            this.nextNumber = size;
+        }
+    }
+
+    private final SplittableRandom root = new SplittableRandom();
+    private final int blockSize;
+    private final ThreadLocal<Block> blocks;
+
+    public BlockOutcomeGenerator(int winThreshold, int minNumber, int maxNumber, int blockSize) {
+        super(winThreshold, minNumber, maxNumber);
+        if (blockSize < 1) {
+            throw new IllegalArgumentException("Block size must be at least 1");
+        }
+        this.blockSize = blockSize;
+        this.blocks = ThreadLocal.withInitial(() -> new Block(split(), this.blockSize));
+    }
+
+    @Override
+    protected int nextWinDraw() {
+        Block block = blocks.get();
+        if (block.nextWin == blockSize) {
+            for (int i = 0; i < blockSize; i++) {
+                block.winDraws[i] = block.random.nextInt(PERCENT);
+            }
+            block.nextWin = 0;
+        }
+        return block.winDraws[block.nextWin++];
+    }
+
+    @Override
+    protected int nextNumberDraw(int bound) {
+        Block block = blocks.get();
+        if (bound != losingSpan()) {
+            // Guess outside the range: rare enough to draw directly
+            return block.random.nextInt(bound);
+        }
+        if (block.nextNumber == blockSize) {
+            for (int i = 0; i < blockSize; i++) {
+                block.numberDraws[i] = block.random.nextInt(bound);
+            }
+            block.nextNumber = 0;
+        }
+        return block.numberDraws[block.nextNumber++];
+    }
+
+    private synchronized SplittableRandom split() {
+        return root.split();
+    }
+}
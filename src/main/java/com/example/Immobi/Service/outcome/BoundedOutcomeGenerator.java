@@ -0,0 +1,55 @@
+package com.example.Immobi.Service.outcome;
+
+/**
+ * Maps uniform draws onto outcomes, so every generator keeps the same win rate and number range
+ * A win is a draw from [0, 100) below the threshold. A losing number is a draw from the range without
+ * the guess: one value short of the range, shifted up past the guess, so no candidate array is needed.
+ */
+abstract class BoundedOutcomeGenerator implements OutcomeGenerator {
+
+    static final int PERCENT = 100;
+
+    private final int winThreshold;
+    private final int minNumber;
+    private final int maxNumber;
+
+    BoundedOutcomeGenerator(int winThreshold, int minNumber, int maxNumber) {
+        if (winThreshold < 0 || winThreshold > PERCENT || minNumber >= maxNumber) {
+            throw new IllegalArgumentException("Invalid outcome bounds");
+        }
+        this.winThreshold = winThreshold;
+        this.minNumber = minNumber;
+        this.maxNumber = maxNumber;
+    }
+
+    /**
+     * @return Uniform draw from [0, {@value #PERCENT})
+     */
+    protected abstract int nextWinDraw();
+
+    /**
+     * @return Uniform draw from [0, bound)
+     */
+    protected abstract int nextNumberDraw(int bound);
+
+    @Override
+    public boolean isWin() {
+        return nextWinDraw() < winThreshold;
+    }
+
+    @Override
+    public int differentNumber(int guessedNumber) {
+        if (guessedNumber < minNumber || guessedNumber > maxNumber) {
+            return minNumber + nextNumberDraw(maxNumber - minNumber + 1);
+        }
+        int number = minNumber + nextNumberDraw(maxNumber - minNumber);
+        return number >= guessedNumber ? number + 1 : number;
+    }
+
+    /**
+     * Number of values a losing number is drawn from when the guess is in range
+     */
+    int losingSpan() {
+        return maxNumber - minNumber;
+    }
+}
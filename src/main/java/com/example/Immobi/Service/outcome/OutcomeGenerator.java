@@ -0,0 +1,18 @@
+package com.example.Immobi.Service.outcome;
+
+/**
+ * Source of guess outcomes: whether a guess wins and, when it loses, the number drawn instead
+ * Implementations are thread-safe and allocate nothing per call
+ */
+public interface OutcomeGenerator {
+
+    /**
+     * @return True with probability winThreshold / 100
+     */
+    boolean isWin();
+
+    /**
+     * @return Number drawn uniformly from [min, max] without the guessed number
+     */
+    int differentNumber(int guessedNumber);
+}
@@ -0,0 +1,28 @@
+package com.example.Immobi.Service.outcome;
+
+import java.util.SplittableRandom;
+
+/**
+ * Deterministic outcome generator for load tests
+ * All threads draw from one seeded stream, so the same seed yields the same sequence of outcomes in call
+ * order. Draws are serialized on a lock; not meant for production traffic.
+ */
+public class SeededOutcomeGenerator extends BoundedOutcomeGenerator {
+
+    private final SplittableRandom random;
+
+    public SeededOutcomeGenerator(int winThreshold, int minNumber, int maxNumber, long seed) {
+        super(winThreshold, minNumber, maxNumber);
+        this.random = new SplittableRandom(seed);
+    }
+
+    @Override
+    protected synchronized int nextWinDraw() {
+        return random.nextInt(PERCENT);
+    }
+
+    @Override
+    protected synchronized int nextNumberDraw(int bound) {
+        return random.nextInt(bound);
+    }
+}
@@ -0,0 +1,31 @@
+package com.example.Immobi.Service.outcome;
+
+import java.util.SplittableRandom;
+
+/**
+ * Outcome generator drawing from a per-thread SplittableRandom
+ * Threads never share generator state; each thread's generator is split once from a common root.
+ */
+public class SplittableOutcomeGenerator extends BoundedOutcomeGenerator {
+
+    private final SplittableRandom root = new SplittableRandom();
+    private final ThreadLocal<SplittableRandom> random = ThreadLocal.withInitial(this::split);
+
+    public SplittableOutcomeGenerator(int winThreshold, int minNumber, int maxNumber) {
+        super(winThreshold, minNumber, maxNumber);
+    }
+
+    @Override
+    protected int nextWinDraw() {
+        return random.get().nextInt(PERCENT);
+    }
+
+    @Override
+    protected int nextNumberDraw(int bound) {
+        return random.get().nextInt(bound);
+    }
+
+    private synchronized SplittableRandom split() {
+        return root.split();
+    }
+}
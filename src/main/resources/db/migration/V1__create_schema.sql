@@ -0,0 +1,39 @@
+-- Tables of the JPA entities, validated by Hibernate at startup (ddl-auto=validate)
+-- Idempotent, so databases created by ddl-auto=update can be baselined at version 0 and migrated
+
+CREATE TABLE IF NOT EXISTS users (
+    id       BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    username VARCHAR(255) NOT NULL,
+    password VARCHAR(255) NOT NULL,
+    email    VARCHAR(255) NOT NULL,
+    CONSTRAINT ux_users_username UNIQUE (username)
+);
+
+-- Every guess rewrites its player's row. A loss only changes remaining_turns, which no index covers,
+-- so the free space left in each page lets Postgres write the new row version as a HOT update on the
+-- same page without touching any index. A win also changes the indexed score and cannot be HOT.
+CREATE TABLE IF NOT EXISTS game_stats (
+    id              BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    user_id         BIGINT NOT NULL REFERENCES users (id),
+    score           INTEGER NOT NULL,
+    remaining_turns INTEGER NOT NULL
+) WITH (fillfactor = 80);
+
+-- Applies to pages written from now on in databases that already have the table
+ALTER TABLE game_stats SET (fillfactor = 80);
+
+-- One stats row per player; serves findByPlayer, findProfileByPlayerId and the guess UPDATEs
+CREATE UNIQUE INDEX IF NOT EXISTS ux_game_stats_user_id ON game_stats (user_id);
+
+-- Leaderboard order; user_id is included so the leaderboard queries read only the index
+CREATE INDEX IF NOT EXISTS idx_game_stats_score_id ON game_stats (score DESC, id, user_id);
+
+-- Drained oldest first by primary key
+CREATE TABLE IF NOT EXISTS game_outbox (
+    id         BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    user_id    BIGINT NOT NULL,
+    username   VARCHAR(255) NOT NULL,
+    score      INTEGER NOT NULL,
+    wins       INTEGER NOT NULL,
+    created_at TIMESTAMP(6) WITH TIME ZONE NOT NULL
+);
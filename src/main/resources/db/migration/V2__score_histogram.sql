@@ -0,0 +1,43 @@
+-- Number of players per score, maintained by triggers on game_stats
+-- A player's rank is 1 + the players of every higher score: a range sum over the distinct scores
+-- Idempotent: databases created before the migrations already have the triggers
+CREATE TABLE IF NOT EXISTS score_histogram (
+    score   INT PRIMARY KEY,
+    players BIGINT NOT NULL
+);
+
+CREATE OR REPLACE FUNCTION game_stats_score_histogram() RETURNS trigger AS $$
+BEGIN
+    -- Rows emptied by a decrement are kept, the number of distinct scores stays small
+    IF TG_OP IN ('UPDATE', 'DELETE') THEN
+        UPDATE score_histogram SET players = players - 1 WHERE score = OLD.score;
+    END IF;
+    IF TG_OP IN ('INSERT', 'UPDATE') THEN
+        INSERT INTO score_histogram (score, players) VALUES (NEW.score, 1)
+        ON CONFLICT (score) DO UPDATE SET players = score_histogram.players + 1;
+    END IF;
+    RETURN NULL;
+END
+$$ LANGUAGE plpgsql;
+
+-- Triggers and backfill are created together under a lock, so no change is counted twice or missed
+DO $$
+BEGIN
+    IF NOT EXISTS (SELECT 1 FROM pg_trigger
+                   WHERE tgrelid = 'game_stats'::regclass AND tgname = 'game_stats_score_histogram_update') THEN
+        LOCK TABLE game_stats IN SHARE ROW EXCLUSIVE MODE;
+
+        CREATE TRIGGER game_stats_score_histogram_insert_delete
+            AFTER INSERT OR DELETE ON game_stats
+            FOR EACH ROW EXECUTE FUNCTION game_stats_score_histogram();
+        CREATE TRIGGER game_stats_score_histogram_update
+            AFTER UPDATE OF score ON game_stats
+            FOR EACH ROW WHEN (OLD.score IS DISTINCT FROM NEW.score)
+            EXECUTE FUNCTION game_stats_score_histogram();
+
+        DELETE FROM score_histogram;
+        INSERT INTO score_histogram (score, players)
+        SELECT score, COUNT(*) FROM game_stats GROUP BY score;
+    END IF;
+END
+$$;
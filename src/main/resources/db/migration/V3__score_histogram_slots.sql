@@ -0,0 +1,24 @@
+-- Spread the count of each score over up to 16 slot rows, summed by the rank queries as before
+-- With one row per score, every transaction moving a player into or out of a popular score queued on that
+-- row, and batches touching scores in different orders could deadlock. The trigger now writes the slot of
+-- its connection's backend, so concurrent sessions mostly update different rows. A slot may go negative;
+-- only the sum over the slots of a score is meaningful.
+ALTER TABLE score_histogram ADD COLUMN slot SMALLINT NOT NULL DEFAULT 0;
+ALTER TABLE score_histogram DROP CONSTRAINT score_histogram_pkey;
+ALTER TABLE score_histogram ADD PRIMARY KEY (score, slot);
+
+CREATE OR REPLACE FUNCTION game_stats_score_histogram() RETURNS trigger AS $$
+DECLARE
+    histogram_slot SMALLINT := pg_backend_pid() % 16;
+BEGIN
+    IF TG_OP IN ('UPDATE', 'DELETE') THEN
+        INSERT INTO score_histogram (score, slot, players) VALUES (OLD.score, histogram_slot, -1)
+        ON CONFLICT (score, slot) DO UPDATE SET players = score_histogram.players - 1;
+    END IF;
+    IF TG_OP IN ('INSERT', 'UPDATE') THEN
+        INSERT INTO score_histogram (score, slot, players) VALUES (NEW.score, histogram_slot, 1)
+        ON CONFLICT (score, slot) DO UPDATE SET players = score_histogram.players + 1;
+    END IF;
+    RETURN NULL;
+END
+$$ LANGUAGE plpgsql;
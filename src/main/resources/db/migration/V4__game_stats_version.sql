@@ -0,0 +1,15 @@
+-- Version of a player's stats, raised by every update of the row whatever statement makes it
+-- Cached profiles are written with the version they show, and a profile older than the cached one is dropped
+ALTER TABLE game_stats ADD COLUMN IF NOT EXISTS version BIGINT NOT NULL DEFAULT 0;
+
+CREATE OR REPLACE FUNCTION game_stats_version() RETURNS trigger AS $$
+BEGIN
+    NEW.version := OLD.version + 1;
+    RETURN NEW;
+END
+$$ LANGUAGE plpgsql;
+
+DROP TRIGGER IF EXISTS game_stats_version ON game_stats;
+CREATE TRIGGER game_stats_version
+    BEFORE UPDATE ON game_stats
+    FOR EACH ROW EXECUTE FUNCTION game_stats_version();
@@ -0,0 +1,11 @@
+-- Cache a player's profile unless a newer one was cached
+-- KEYS[1] = profile cache entry, KEYS[2] = version of the last profile cached, kept when the entry is evicted
+-- ARGV[1] = version of the stats the profile shows, ARGV[2] = serialized profile, ARGV[3] = TTL in seconds
+-- Returns 1 when cached, 0 when a newer profile was cached before
+local cached = redis.call('GET', KEYS[2])
+if cached and tonumber(cached) > tonumber(ARGV[1]) then
+    return 0
+end
+redis.call('SET', KEYS[1], ARGV[2], 'EX', ARGV[3])
+redis.call('SET', KEYS[2], ARGV[1], 'EX', ARGV[3])
+return 1
@@ -0,0 +1,32 @@
+-- Play one or more guesses: consume turns and apply the wins of the guesses that could be played
+-- KEYS[1] = player stats hash (fields turns, score, version)
+-- KEYS[2] = leaderboard sorted set (member = userId), KEYS[3] = userId -> username hash
+-- KEYS[4] = leaderboard being rebuilt, KEYS[5] = its username hash, KEYS[6] = rebuild marker
+-- KEYS[7] = stats change stream, replayed into the database
+-- ARGV[1] = userId, ARGV[2] = username
+-- ARGV[2+i] = points won by the first i guesses, for each guess i of the batch
+-- Returns {1, turns, score, played, version}, {0} when no turns are left, {-1} when the stats are not loaded
+local turns = redis.call('HGET', KEYS[1], 'turns')
+if not turns then
+    return {-1}
+end
+turns = tonumber(turns)
+if turns <= 0 then
+    return {0}
+end
+local played = math.min(turns, #ARGV - 2)
+local points = tonumber(ARGV[2 + played])
+turns = redis.call('HINCRBY', KEYS[1], 'turns', -played)
+local score = redis.call('HINCRBY', KEYS[1], 'score', points)
+local version = redis.call('HINCRBY', KEYS[1], 'version', 1)
+if points > 0 then
+    redis.call('HSET', KEYS[3], ARGV[1], ARGV[2])
+    redis.call('ZADD', KEYS[2], score, ARGV[1])
+    if redis.call('EXISTS', KEYS[6]) == 1 then
+        redis.call('SREM', KEYS[6], ARGV[1])
+        redis.call('HSET', KEYS[5], ARGV[1], ARGV[2])
+        redis.call('ZADD', KEYS[4], 'GT', score, ARGV[1])
+    end
+end
+redis.call('XADD', KEYS[7], '*', 'user', ARGV[1], 'turns', turns, 'score', score)
+return {1, turns, score, played, version}
@@ -0,0 +1,9 @@
+-- Seed a player's stats from the database, unless Redis already holds them
+-- KEYS[1] = player stats hash
+-- ARGV[1] = turns, ARGV[2] = score, ARGV[3] = version of the row, continued by the other scripts
+-- Returns 1 when loaded, 0 when the stats were already present
+if redis.call('EXISTS', KEYS[1]) == 1 then
+    return 0
+end
+redis.call('HSET', KEYS[1], 'turns', ARGV[1], 'score', ARGV[2], 'version', ARGV[3])
+return 1
@@ -0,0 +1,19 @@
+-- Add to or reset the turns of a player whose stats live in Redis
+-- KEYS[1] = player stats hash (fields turns, score, version)
+-- KEYS[2] = stats change stream, replayed into the database
+-- ARGV[1] = userId, ARGV[2] = 'add' or 'set', ARGV[3] = turns
+-- Returns {1, turns, score, 0, version}, or {-1} when the stats are not loaded
+if redis.call('EXISTS', KEYS[1]) == 0 then
+    return {-1}
+end
+local turns
+if ARGV[2] == 'add' then
+    turns = redis.call('HINCRBY', KEYS[1], 'turns', ARGV[3])
+else
+    redis.call('HSET', KEYS[1], 'turns', ARGV[3])
+    turns = tonumber(ARGV[3])
+end
+local score = tonumber(redis.call('HGET', KEYS[1], 'score'))
+local version = redis.call('HINCRBY', KEYS[1], 'version', 1)
+redis.call('XADD', KEYS[2], '*', 'user', ARGV[1], 'turns', turns, 'score', score)
+return {1, turns, score, 0, version}
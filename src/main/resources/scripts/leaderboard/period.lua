@@ -0,0 +1,28 @@
+-- Add points to the time-windowed leaderboards
+-- KEYS[1] = outbox events already applied for the player (member = event id, score = event time)
+-- KEYS[2..n+1] = period sorted sets (member = userId), created on first write
+-- KEYS[n+2..] = multi-period views, only incremented once they have been materialized
+-- ARGV[1] = userId, ARGV[2] = points, ARGV[3] = n
+-- ARGV[4] = outbox event id, empty for points not relayed from the outbox
+-- ARGV[5] = event time, ARGV[6] = time before which applied events are forgotten
+-- ARGV[7] = unix time at which KEYS[1] expires, ARGV[7+i] = unix time at which KEYS[1+i] expires
+local periods = tonumber(ARGV[3])
+if ARGV[4] ~= '' then
+    -- A relayed batch is replayed when its commit fails after the pipeline ran: count each event once
+    if redis.call('ZADD', KEYS[1], 'NX', ARGV[5], ARGV[4]) == 0 then
+        return 0
+    end
+    redis.call('ZREMRANGEBYSCORE', KEYS[1], '-inf', '(' .. ARGV[6])
+    redis.call('EXPIREAT', KEYS[1], ARGV[7])
+end
+for i = 1, periods do
+    redis.call('ZINCRBY', KEYS[1 + i], ARGV[2], ARGV[1])
+    redis.call('EXPIREAT', KEYS[1 + i], ARGV[7 + i])
+end
+for i = periods + 2, #KEYS do
+    -- A view is a ZUNIONSTORE of its periods: keep it in step instead of recomputing it per write
+    if redis.call('EXISTS', KEYS[i]) == 1 then
+        redis.call('ZINCRBY', KEYS[i], ARGV[2], ARGV[1])
+    end
+end
+return periods
@@ -0,0 +1,9 @@
+-- Rank of a single player in O(log N)
+-- KEYS[1] = leaderboard sorted set
+-- ARGV[1] = userId
+-- Returns the 1-based rank (players with equal score share a rank), or -1 when absent
+local score = redis.call('ZSCORE', KEYS[1], ARGV[1])
+if not score then
+    return -1
+end
+return redis.call('ZCOUNT', KEYS[1], '(' .. score, '+inf') + 1
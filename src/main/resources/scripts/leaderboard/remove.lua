@@ -0,0 +1,14 @@
+-- Remove a player from the leaderboard
+-- KEYS[1] = leaderboard sorted set (member = userId)
+-- KEYS[2] = userId -> username hash
+-- KEYS[3] = leaderboard being rebuilt, KEYS[4] = its username hash
+-- KEYS[5] = rebuild marker, present while a rebuild runs; holds the players removed meanwhile
+-- ARGV[1] = userId
+redis.call('HDEL', KEYS[2], ARGV[1])
+if redis.call('EXISTS', KEYS[5]) == 1 then
+    -- Mirror the removal, and remember it: a chunk read before it may still add the player back
+    redis.call('ZREM', KEYS[3], ARGV[1])
+    redis.call('HDEL', KEYS[4], ARGV[1])
+    redis.call('SADD', KEYS[5], ARGV[1])
+end
+return redis.call('ZREM', KEYS[1], ARGV[1])
@@ -0,0 +1,22 @@
+-- Swap a shard's rebuilt leaderboard in over the live one and end the rebuild
+-- KEYS[1] = leaderboard sorted set, KEYS[2] = userId -> username hash
+-- KEYS[3] = rebuilt leaderboard, KEYS[4] = its username hash
+-- KEYS[5] = rebuild marker, holding the players removed during the rebuild
+-- ARGV[1] = expiry of the live keys in seconds
+-- Returns the number of players on the shard
+for _, userId in ipairs(redis.call('SMEMBERS', KEYS[5])) do
+    if userId ~= '' then
+        redis.call('ZREM', KEYS[3], userId)
+        redis.call('HDEL', KEYS[4], userId)
+    end
+end
+redis.call('DEL', KEYS[5])
+if redis.call('EXISTS', KEYS[3]) == 0 then
+    redis.call('DEL', KEYS[1], KEYS[2], KEYS[4])
+    return 0
+end
+redis.call('RENAME', KEYS[3], KEYS[1])
+redis.call('RENAME', KEYS[4], KEYS[2])
+redis.call('EXPIRE', KEYS[1], ARGV[1])
+redis.call('EXPIRE', KEYS[2], ARGV[1])
+return redis.call('ZCARD', KEYS[1])
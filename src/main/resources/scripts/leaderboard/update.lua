@@ -0,0 +1,21 @@
+-- Set a player's score and username
+-- KEYS[1] = leaderboard sorted set (member = userId)
+-- KEYS[2] = userId -> username hash
+-- KEYS[3] = leaderboard being rebuilt, KEYS[4] = its username hash
+-- KEYS[5] = rebuild marker, present while a rebuild runs; holds the players removed meanwhile
+-- ARGV[1] = userId, ARGV[2] = username, ARGV[3] = score
+-- ARGV[4] = optional 'GT': only raise the score, for writes that may be replayed or arrive out of order
+redis.call('HSET', KEYS[2], ARGV[1], ARGV[2])
+local added
+if ARGV[4] == 'GT' then
+    added = redis.call('ZADD', KEYS[1], 'GT', ARGV[3], ARGV[1])
+else
+    added = redis.call('ZADD', KEYS[1], ARGV[3], ARGV[1])
+end
+if redis.call('EXISTS', KEYS[5]) == 1 then
+    -- A rebuild is streaming into KEYS[3]: mirror the write so it survives the swap
+    redis.call('SREM', KEYS[5], ARGV[1])
+    redis.call('HSET', KEYS[4], ARGV[1], ARGV[2])
+    redis.call('ZADD', KEYS[3], 'GT', ARGV[3], ARGV[1])
+end
+return added
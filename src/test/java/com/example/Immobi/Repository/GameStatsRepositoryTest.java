@@ -0,0 +1,134 @@
+package com.example.Immobi.Repository;
+
+import com.example.Immobi.AbstractIntegrationTest;
+import com.example.Immobi.Entity.GameStats;
+import com.example.Immobi.Entity.User;
+import com.example.Immobi.Repository.projection.BatchTurnResult;
+import com.example.Immobi.Repository.projection.LeaderboardRow;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Native queries of the stats repository and the score histogram trigger behind the rank queries
+ * Each test runs in a transaction that is rolled back. Scores start at {@link #HIGH_SCORE}, far above what
+ * other tests play, so the rows of a test are the top of the leaderboard inside its transaction.
+ */
+@Transactional
+class GameStatsRepositoryTest extends AbstractIntegrationTest {
+
+    private static final int HIGH_SCORE = 1_000_000;
+
+    @Autowired
+    private GameStatsRepository gameStatsRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void consumeTurnsPlaysOnlyTheRemainingTurns() {
+        GameStats stats = createStats(0, 3);
+        Long playerId = stats.getPlayer().getId();
+
+        // Five guesses requested, three turns left: only the points of the first three guesses count
+        BatchTurnResult result = gameStatsRepository.consumeTurns(playerId, 5, "1,1,2,3,3").orElseThrow();
+
+        assertEquals(3, result.getPlayed());
+        assertEquals(0, result.getRemainingTurns());
+        assertEquals(2, result.getScore());
+        assertTrue(gameStatsRepository.consumeTurns(playerId, 5, "1,1,2,3,3").isEmpty());
+    }
+
+    @Test
+    void consumeTurnsPlaysTheWholeBatchWhenTurnsRemain() {
+        GameStats stats = createStats(4, 10);
+
+        BatchTurnResult result = gameStatsRepository.consumeTurns(stats.getPlayer().getId(), 3, "0,1,1").orElseThrow();
+
+        assertEquals(3, result.getPlayed());
+        assertEquals(7, result.getRemainingTurns());
+        assertEquals(5, result.getScore());
+    }
+
+    @Test
+    void keysetPagesWalkTiesWithoutGapsOrDuplicates() {
+        List<Long> expected = new ArrayList<>();
+        for (int score : new int[] {3, 2, 2, 2, 2, 1, 1, 0}) {
+            expected.add(createStats(HIGH_SCORE + score, 0).getId());
+        }
+        // Ties are ordered by GameStats ID, which follows the insertion order above
+        int pageSize = 3;
+
+        List<Long> walked = new ArrayList<>();
+        List<LeaderboardRow> page = gameStatsRepository.findTopPlayers(pageSize);
+        while (!page.isEmpty() && page.get(0).getScore() >= HIGH_SCORE) {
+            page.stream().filter(row -> row.getScore() >= HIGH_SCORE).forEach(row -> walked.add(row.getId()));
+            LeaderboardRow last = page.get(page.size() - 1);
+            page = gameStatsRepository.findTopPlayersAfter(last.getScore(), last.getId(), pageSize);
+        }
+
+        assertEquals(expected, walked);
+    }
+
+    @Test
+    void histogramCountsEveryPlayerOnceAtTheirScore() {
+        GameStats moved = createStats(HIGH_SCORE + 5, 1);
+        GameStats removed = createStats(HIGH_SCORE + 5, 1);
+        createStats(HIGH_SCORE + 5, 1);
+        createStats(HIGH_SCORE + 2, 1);
+        moved.setScore(HIGH_SCORE + 7);
+        gameStatsRepository.saveAndFlush(moved);
+        gameStatsRepository.delete(removed);
+        gameStatsRepository.flush();
+
+        List<String> mismatches = jdbcTemplate.queryForList(
+                "SELECT COALESCE(h.score, s.score) || ': ' || COALESCE(h.players, 0) || ' <> ' || COALESCE(s.players, 0) " +
+                "FROM (SELECT score, SUM(players) AS players FROM score_histogram GROUP BY score HAVING SUM(players) <> 0) h " +
+                "FULL JOIN (SELECT score, COUNT(*) AS players FROM game_stats GROUP BY score) s ON s.score = h.score " +
+                "WHERE COALESCE(h.players, 0) <> COALESCE(s.players, 0)",
+                String.class);
+
+        assertTrue(mismatches.isEmpty(), () -> "Histogram differs from game_stats at " + mismatches);
+    }
+
+    @Test
+    void ranksAreSharedByTiedScores() {
+        GameStats first = createStats(HIGH_SCORE + 10, 0);
+        GameStats tied = createStats(HIGH_SCORE + 10, 0);
+        GameStats third = createStats(HIGH_SCORE + 8, 0);
+        createStats(HIGH_SCORE + 8, 0);
+        GameStats fifth = createStats(HIGH_SCORE + 5, 0);
+
+        assertEquals(Optional.of(1), gameStatsRepository.getPlayerRank(first.getPlayer().getId()));
+        assertEquals(Optional.of(1), gameStatsRepository.getPlayerRank(tied.getPlayer().getId()));
+        assertEquals(Optional.of(3), gameStatsRepository.getPlayerRank(third.getPlayer().getId()));
+        assertEquals(Optional.of(5), gameStatsRepository.getPlayerRank(fifth.getPlayer().getId()));
+        assertEquals(1, gameStatsRepository.getRankForScore(HIGH_SCORE + 11));
+        assertEquals(3, gameStatsRepository.getRankForScore(HIGH_SCORE + 9));
+        assertEquals(5, gameStatsRepository.getRankForScore(HIGH_SCORE + 5));
+        assertEquals(6, gameStatsRepository.getRankForScore(HIGH_SCORE + 4));
+        assertFalse(gameStatsRepository.getPlayerRank(-1L).isPresent());
+    }
+
+    private GameStats createStats(int score, int remainingTurns) {
+        String name = "repository-" + UUID.randomUUID();
+        User player = userRepository.save(new User(name, "password", name + "@example.com"));
+        GameStats stats = new GameStats(player);
+        stats.setScore(score);
+        stats.setRemainingTurns(remainingTurns);
+        return gameStatsRepository.saveAndFlush(stats);
+    }
+}
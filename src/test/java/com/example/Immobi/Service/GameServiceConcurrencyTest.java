@@ -0,0 +1,143 @@
+package com.example.Immobi.Service;
+
+import com.example.Immobi.AbstractIntegrationTest;
+import com.example.Immobi.Core.exception.BusinessException;
+import com.example.Immobi.Core.exception.ErrorCode;
+import com.example.Immobi.Dto.game.GuessRequest;
+import com.example.Immobi.Dto.game.GuessResponse;
+import com.example.Immobi.Dto.player.PlayerProfileDto;
+import com.example.Immobi.Entity.GameStats;
+import com.example.Immobi.Entity.User;
+import com.example.Immobi.Repository.GameStatsRepository;
+import com.example.Immobi.Repository.UserRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Many guesses of one player at once, in the default database mode
+ * Every turn must be played exactly once and the final score must be the sum of the wins handed out.
+ */
+class GameServiceConcurrencyTest extends AbstractIntegrationTest {
+
+    private static final int TURNS = 20;
+    private static final int GUESSES = 60;
+    private static final int THREADS = 16;
+
+    @Autowired
+    protected GameService gameService;
+
+    @Autowired
+    protected UserRepository userRepository;
+
+    @Autowired
+    protected GameStatsRepository gameStatsRepository;
+
+    @Autowired
+    protected PlayerService playerService;
+
+    @Test
+    void concurrentGuessesPlayEveryTurnExactlyOnce() throws Exception {
+        User player = createPlayer(TURNS);
+        AtomicInteger rejected = new AtomicInteger();
+
+        List<GuessResponse> played = guessConcurrently(player, GUESSES, rejected);
+
+        assertEquals(TURNS, played.size());
+        assertEquals(GUESSES - TURNS, rejected.get());
+        GameStats stats = settledStats(player);
+        assertEquals(0, stats.getRemainingTurns());
+        assertEquals(played.stream().filter(GuessResponse::isCorrect).count(), (long) stats.getScore());
+    }
+
+    @Test
+    void concurrentGuessesReportDistinctRemainingTurns() throws Exception {
+        User player = createPlayer(TURNS);
+
+        List<GuessResponse> played = guessConcurrently(player, GUESSES, new AtomicInteger());
+
+        // Each consumed turn leaves a different count behind: TURNS - 1 down to 0
+        assertEquals(TURNS, played.stream().mapToInt(GuessResponse::getRemainingTurns).distinct().count());
+        assertTrue(played.stream().allMatch(response -> response.getRemainingTurns() >= 0));
+    }
+
+    @Test
+    void cachedProfileShowsTheLastGuess() throws Exception {
+        User player = createPlayer(TURNS);
+
+        List<GuessResponse> played = guessConcurrently(player, TURNS, new AtomicInteger());
+
+        // Every guess wrote its profile through to the cache; only the newest may remain
+        PlayerProfileDto profile = playerService.getPlayerProfile(player);
+        assertEquals(0, profile.getRemainingTurns());
+        assertEquals(played.stream().filter(GuessResponse::isCorrect).count(), (long) profile.getScore());
+    }
+
+    /**
+     * Stats of the player as stored in the database once all changes reached it
+     */
+    protected GameStats settledStats(User player) {
+        return gameStatsRepository.findByPlayer(player).orElseThrow();
+    }
+
+    private User createPlayer(int turns) {
+        String name = "concurrent-" + UUID.randomUUID();
+        User player = userRepository.save(new User(name, "password", name + "@example.com"));
+        GameStats stats = new GameStats(player);
+        stats.setRemainingTurns(turns);
+        gameStatsRepository.save(stats);
+        return player;
+    }
+
+    /**
+     * Fire the guesses from several threads released at the same moment
+     *
+     * @param rejected Incremented for every guess refused for lack of turns
+     * @return Responses of the guesses that were played
+     */
+    private List<GuessResponse> guessConcurrently(User player, int guesses, AtomicInteger rejected) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        Queue<GuessResponse> played = new ConcurrentLinkedQueue<>();
+        List<Future<?>> results = new ArrayList<>(guesses);
+        try {
+            for (int i = 0; i < guesses; i++) {
+                results.add(executor.submit(() -> {
+                    start.await();
+                    GuessRequest request = new GuessRequest();
+                    request.setNumber(GuessRequest.MIN_GUESS_NUMBER);
+                    try {
+                        played.add(gameService.processGuess(player, request));
+                    } catch (BusinessException e) {
+                        if (e.getErrorCode() != ErrorCode.NO_TURNS_LEFT) {
+                            throw e;
+                        }
+                        rejected.incrementAndGet();
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> result : results) {
+                result.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        return new ArrayList<>(played);
+    }
+}
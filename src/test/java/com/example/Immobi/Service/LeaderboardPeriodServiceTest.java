@@ -0,0 +1,162 @@
+package com.example.Immobi.Service;
+
+import com.example.Immobi.AbstractIntegrationTest;
+import com.example.Immobi.Service.LeaderboardPeriodService.Period;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Rollover of the time-windowed leaderboard keys at day, week and season boundaries
+ * The service runs on a settable clock. Dates lie far in the future: the period keys expire relative to the
+ * real time, and no other test writes them. Each test plays its own user IDs, as the tests share periods.
+ */
+class LeaderboardPeriodServiceTest extends AbstractIntegrationTest {
+
+    private static final String SEASON_START = "2099-01-01";
+    private static final int SEASON_LENGTH_DAYS = 28;
+
+    @Autowired
+    private StringRedisTemplate redisTemplate;
+
+    @Test
+    void dailyKeyRollsOverAtMidnight() {
+        SettableClock clock = new SettableClock(LocalDate.parse("2099-03-10"));
+        LeaderboardPeriodService service = newService(clock);
+        service.addPoints(1L, 3);
+        String firstDay = service.resolveKey(Period.DAILY);
+
+        clock.setDate(LocalDate.parse("2099-03-11"));
+        service.addPoints(2L, 2);
+        String secondDay = service.resolveKey(Period.DAILY);
+
+        assertNotEquals(firstDay, secondDay);
+        assertEquals(3.0, redisTemplate.opsForZSet().score(firstDay, "1"));
+        assertNull(redisTemplate.opsForZSet().score(secondDay, "1"));
+        assertEquals(2.0, redisTemplate.opsForZSet().score(secondDay, "2"));
+        Long ttl = redisTemplate.getExpire(secondDay);
+        assertTrue(ttl != null && ttl > 0, "Daily keys must expire");
+
+        String lastSevenDays = service.resolveKey(Period.LAST_7_DAYS);
+        assertEquals(3.0, redisTemplate.opsForZSet().score(lastSevenDays, "1"));
+        assertEquals(2.0, redisTemplate.opsForZSet().score(lastSevenDays, "2"));
+    }
+
+    @Test
+    void materializedViewFollowsLaterWrites() {
+        SettableClock clock = new SettableClock(LocalDate.parse("2099-04-07"));
+        LeaderboardPeriodService service = newService(clock);
+        service.addPoints(3L, 1);
+        String view = service.resolveKey(Period.LAST_7_DAYS);
+
+        service.addPoints(3L, 4);
+
+        assertEquals(view, service.resolveKey(Period.LAST_7_DAYS));
+        assertEquals(5.0, redisTemplate.opsForZSet().score(view, "3"));
+    }
+
+    @Test
+    void weeklyKeyRollsOverOnMonday() {
+        SettableClock clock = new SettableClock(LocalDate.parse("2099-03-15"));
+        LeaderboardPeriodService service = newService(clock);
+        service.addPoints(4L, 4);
+        String sunday = service.resolveKey(Period.WEEKLY);
+
+        clock.setDate(LocalDate.parse("2099-03-16"));
+        String monday = service.resolveKey(Period.WEEKLY);
+
+        assertNotEquals(sunday, monday);
+        assertNull(redisTemplate.opsForZSet().score(monday, "4"));
+        assertEquals(4.0, redisTemplate.opsForZSet().score(service.resolveKey(Period.LAST_4_WEEKS), "4"));
+    }
+
+    @Test
+    void seasonKeyRollsOverAfterTheSeasonLength() {
+        // Season 4 starts 3 * 28 days after 2099-01-01
+        SettableClock clock = new SettableClock(LocalDate.parse("2099-03-25"));
+        LeaderboardPeriodService service = newService(clock);
+        service.addPoints(5L, 6);
+        String lastDay = service.resolveKey(Period.SEASON);
+
+        clock.setDate(LocalDate.parse("2099-03-26"));
+        String nextSeason = service.resolveKey(Period.SEASON);
+
+        assertTrue(lastDay.endsWith(":season:3"), lastDay);
+        assertTrue(nextSeason.endsWith(":season:4"), nextSeason);
+        assertNull(redisTemplate.opsForZSet().score(nextSeason, "5"));
+    }
+
+    @Test
+    void replayedOutboxEventIsCountedOnce() {
+        SettableClock clock = new SettableClock(LocalDate.parse("2099-05-12"));
+        LeaderboardPeriodService service = newService(clock);
+        service.addPoints(6L, 2, 1001L, clock.instant());
+        service.addPoints(6L, 2, 1001L, clock.instant());
+        service.addPoints(6L, 1, 1002L, clock.instant());
+
+        assertEquals(3.0, redisTemplate.opsForZSet().score(service.resolveKey(Period.DAILY), "6"));
+        assertEquals(3.0, redisTemplate.opsForZSet().score(service.resolveKey(Period.SEASON), "6"));
+    }
+
+    @Test
+    void lateOutboxEventCountsTowardsTheDayItWasWonOn() {
+        SettableClock clock = new SettableClock(LocalDate.parse("2099-06-08"));
+        LeaderboardPeriodService service = newService(clock);
+        String wonOn = service.resolveKey(Period.DAILY);
+        Instant wonAt = clock.instant();
+
+        clock.setDate(LocalDate.parse("2099-06-09"));
+        String lastSevenDays = service.resolveKey(Period.LAST_7_DAYS);
+        service.addPoints(7L, 5, 2001L, wonAt);
+
+        assertEquals(5.0, redisTemplate.opsForZSet().score(wonOn, "7"));
+        assertNull(redisTemplate.opsForZSet().score(service.resolveKey(Period.DAILY), "7"));
+        assertEquals(5.0, redisTemplate.opsForZSet().score(lastSevenDays, "7"));
+    }
+
+    private LeaderboardPeriodService newService(Clock clock) {
+        return new LeaderboardPeriodService(redisTemplate, clock, SEASON_START, SEASON_LENGTH_DAYS);
+    }
+
+    /**
+     * UTC clock standing at noon of a settable date
+     */
+    private static final class SettableClock extends Clock {
+
+        private volatile LocalDate date;
+
+        SettableClock(LocalDate date) {
+            this.date = date;
+        }
+
+        void setDate(LocalDate date) {
+            this.date = date;
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Instant instant() {
+            return date.atTime(12, 0).toInstant(ZoneOffset.UTC);
+        }
+    }
+}
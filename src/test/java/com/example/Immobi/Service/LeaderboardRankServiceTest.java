@@ -0,0 +1,61 @@
+package com.example.Immobi.Service;
+
+import com.example.Immobi.AbstractIntegrationTest;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * Competition ranking of the rank script and of score lookups: tied players share a rank and the next
+ * score skips the tied positions
+ */
+class LeaderboardRankServiceTest extends AbstractIntegrationTest {
+
+    @Autowired
+    private LeaderboardRankService leaderboardRankService;
+
+    @Autowired
+    private StringRedisTemplate redisTemplate;
+
+    private String leaderboardKey;
+
+    @BeforeEach
+    void createLeaderboard() {
+        leaderboardKey = "test:rank:" + UUID.randomUUID();
+        int[] scores = {10, 10, 8, 8, 5};
+        for (int i = 0; i < scores.length; i++) {
+            redisTemplate.opsForZSet().add(leaderboardKey, String.valueOf(i + 1), scores[i]);
+        }
+    }
+
+    @Test
+    void tiedPlayersShareARank() {
+        assertEquals(1, leaderboardRankService.getRank(leaderboardKey, 1L));
+        assertEquals(1, leaderboardRankService.getRank(leaderboardKey, 2L));
+        assertEquals(3, leaderboardRankService.getRank(leaderboardKey, 3L));
+        assertEquals(3, leaderboardRankService.getRank(leaderboardKey, 4L));
+        assertEquals(5, leaderboardRankService.getRank(leaderboardKey, 5L));
+    }
+
+    @Test
+    void absentPlayerHasNoRank() {
+        assertNull(leaderboardRankService.getRank(leaderboardKey, 6L));
+    }
+
+    @Test
+    void scoreRanksBehindEveryHigherScore() {
+        assertEquals(1, leaderboardRankService.getRankForScore(leaderboardKey, 11));
+        assertEquals(1, leaderboardRankService.getRankForScore(leaderboardKey, 10));
+        assertEquals(3, leaderboardRankService.getRankForScore(leaderboardKey, 9));
+        assertEquals(3, leaderboardRankService.getRankForScore(leaderboardKey, 8));
+        assertEquals(5, leaderboardRankService.getRankForScore(leaderboardKey, 7));
+        assertEquals(5, leaderboardRankService.getRankForScore(leaderboardKey, 5));
+        assertEquals(6, leaderboardRankService.getRankForScore(leaderboardKey, 4));
+    }
+}
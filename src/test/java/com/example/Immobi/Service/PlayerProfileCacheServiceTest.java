@@ -0,0 +1,74 @@
+package com.example.Immobi.Service;
+
+import com.example.Immobi.AbstractIntegrationTest;
+import com.example.Immobi.Dto.player.PlayerProfileDto;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Versioned writes of the profile cache: a profile never replaces a newer one
+ */
+class PlayerProfileCacheServiceTest extends AbstractIntegrationTest {
+
+    @Autowired
+    private PlayerProfileCacheService playerProfileCacheService;
+
+    @Autowired
+    private PlayerService playerService;
+
+    @Test
+    void olderProfileDoesNotReplaceNewerOne() {
+        long userId = randomUserId();
+
+        assertTrue(playerProfileCacheService.put(profile(userId, 7), 3));
+        assertFalse(playerProfileCacheService.put(profile(userId, 6), 2));
+
+        assertEquals(7, playerProfileCacheService.get(userId).getScore());
+    }
+
+    @Test
+    void newerProfileReplacesOlderOne() {
+        long userId = randomUserId();
+
+        playerProfileCacheService.put(profile(userId, 7), 3);
+        assertTrue(playerProfileCacheService.put(profile(userId, 8), 4));
+
+        assertEquals(8, playerProfileCacheService.get(userId).getScore());
+    }
+
+    @Test
+    void evictionKeepsRefusingOlderProfiles() {
+        long userId = randomUserId();
+        playerProfileCacheService.put(profile(userId, 7), 3);
+
+        playerService.refreshPlayerProfile(userId);
+
+        assertNull(playerProfileCacheService.get(userId));
+        assertFalse(playerProfileCacheService.put(profile(userId, 6), 2));
+        // The profile evicted can be cached again
+        assertTrue(playerProfileCacheService.put(profile(userId, 7), 3));
+    }
+
+    private static PlayerProfileDto profile(long userId, int score) {
+        return PlayerProfileDto.builder()
+                .id(userId)
+                .email("player@example.com")
+                .username("player")
+                .score(score)
+                .remainingTurns(5)
+                .rank(1)
+                .build();
+    }
+
+    // Profiles are keyed by user ID only; IDs far above the players created by other tests keep them apart
+    private static long randomUserId() {
+        return ThreadLocalRandom.current().nextLong(1_000_000_000L, Long.MAX_VALUE);
+    }
+}
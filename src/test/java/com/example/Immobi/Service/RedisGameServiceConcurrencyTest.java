@@ -0,0 +1,48 @@
+package com.example.Immobi.Service;
+
+import com.example.Immobi.Entity.GameStats;
+import com.example.Immobi.Entity.User;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.TestPropertySource;
+
+/**
+ * The concurrent guess tests in the Redis guess mode
+ * Turns are consumed by the guess script; the database row is checked once the change stream was replayed.
+ */
+@TestPropertySource(properties = "game.guess.mode=" + RedisGameStatsService.MODE_REDIS)
+class RedisGameServiceConcurrencyTest extends GameServiceConcurrencyTest {
+
+    private static final long SETTLE_TIMEOUT_MILLIS = 10_000;
+
+    @Autowired
+    private GameStatsSyncService gameStatsSyncService;
+
+    @Autowired
+    private GameStatsWriteBehindService gameStatsWriteBehindService;
+
+    /**
+     * Replay the stream and flush the buffer until the row has caught up with the last guess
+     * The scheduled replay runs as well, so a single pass may find the entries already taken
+     */
+    @Override
+    protected GameStats settledStats(User player) {
+        long deadline = System.currentTimeMillis() + SETTLE_TIMEOUT_MILLIS;
+        GameStats stats;
+        do {
+            gameStatsSyncService.sync();
+            gameStatsWriteBehindService.flush();
+            stats = super.settledStats(player);
+        } while (stats.getRemainingTurns() != 0 && System.currentTimeMillis() < deadline && pause());
+        return stats;
+    }
+
+    private static boolean pause() {
+        try {
+            Thread.sleep(100);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}